@@ -0,0 +1,120 @@
+/*
+ * Copyright 2015 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.plugin.callbacks;
+
+import com.hivemq.plugin.sender.PointSource;
+import com.hivemq.plugin.sketch.SpaceSaving;
+import com.hivemq.plugin.sketch.StripedSpaceSaving;
+import com.hivemq.spi.annotations.NotNull;
+import com.hivemq.spi.callback.CallbackPriority;
+import com.hivemq.spi.callback.events.OnConnectCallback;
+import com.hivemq.spi.callback.events.OnPublishReceivedCallback;
+import com.hivemq.spi.callback.exception.OnPublishReceivedException;
+import com.hivemq.spi.callback.exception.RefusedConnectionException;
+import com.hivemq.spi.message.CONNECT;
+import com.hivemq.spi.message.PUBLISH;
+import com.hivemq.spi.security.ClientData;
+import com.izettle.metrics.influxdb.InfluxDbSender;
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+
+import javax.inject.Singleton;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tracks the clients with the most PUBLISH messages and the most connects with fixed memory
+ * {@link SpaceSaving} sketches. Only the top clients of every reporting interval are written, as the measurements
+ * <code>clients.top.publishes</code> and <code>clients.top.connects</code> with the tag <code>rank</code> and the
+ * fields <code>client</code>, <code>count</code> and <code>error</code> (the maximum overestimation of the count).
+ * The client id is a field, so there are at most top K series per measurement no matter how many clients there are.
+ */
+@Singleton
+public class HeavyHitterCollector implements OnPublishReceivedCallback, OnConnectCallback, PointSource {
+
+    public static final String PUBLISHES_MEASUREMENT = "clients.top.publishes";
+    public static final String CONNECTS_MEASUREMENT = "clients.top.connects";
+
+    private volatile Sketches sketches;
+
+    /**
+     * Starts tracking with new, empty sketches.
+     */
+    public void reset(final int sketchSize, final int topK) {
+        sketches = new Sketches(sketchSize, topK);
+    }
+
+    public void disable() {
+        sketches = null;
+    }
+
+    @Override
+    public void onPublishReceived(final PUBLISH publish, final ClientData clientData) throws OnPublishReceivedException {
+        final Sketches current = sketches;
+        if (current != null) {
+            current.publishes.offer(clientData.getClientId(), 1);
+        }
+    }
+
+    @Override
+    public void onConnect(final CONNECT connect, final ClientData clientData) throws RefusedConnectionException {
+        final Sketches current = sketches;
+        if (current != null) {
+            current.connects.offer(clientData.getClientId(), 1);
+        }
+    }
+
+    @Override
+    public void appendPoints(@NotNull final InfluxDbSender sender, final long timestamp) {
+        final Sketches current = sketches;
+        if (current == null) {
+            return;
+        }
+        appendTop(sender, PUBLISHES_MEASUREMENT, current.publishes, current.topK, timestamp);
+        appendTop(sender, CONNECTS_MEASUREMENT, current.connects, current.topK, timestamp);
+    }
+
+    private void appendTop(final InfluxDbSender sender, final String measurement, final StripedSpaceSaving sketch,
+                           final int topK, final long timestamp) {
+        int rank = 1;
+        for (SpaceSaving.Entry entry : sketch.drainTop(topK)) {
+            final Map<String, Object> fields = new HashMap<>(4);
+            fields.put("client", entry.getKey());
+            fields.put("count", entry.getCount());
+            fields.put("error", entry.getError());
+            final Map<String, String> tags = Collections.singletonMap("rank", String.valueOf(rank++));
+            sender.appendPoints(new InfluxDbPoint(measurement, tags, timestamp, fields));
+        }
+    }
+
+    @Override
+    public int priority() {
+        return CallbackPriority.LOW;
+    }
+
+    private static class Sketches {
+
+        private final StripedSpaceSaving publishes;
+        private final StripedSpaceSaving connects;
+        private final int topK;
+
+        Sketches(final int sketchSize, final int topK) {
+            this.publishes = new StripedSpaceSaving(sketchSize);
+            this.connects = new StripedSpaceSaving(sketchSize);
+            this.topK = topK;
+        }
+    }
+}
@@ -1,22 +1,56 @@
 package com.hivemq.plugin.callbacks;
 
+import com.codahale.metrics.Gauge;
 import com.codahale.metrics.MetricFilter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.ScheduledReporter;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
 import com.hivemq.plugin.configuration.InfluxDbConfiguration;
+import com.hivemq.plugin.histogram.TimerBucketExporter;
+import com.hivemq.plugin.jvm.JvmPauseCollector;
+import com.hivemq.plugin.mapping.MetricNameMapper;
+import com.hivemq.plugin.mapping.MetricTemplate;
+import com.hivemq.plugin.sender.BufferDrainer;
+import com.hivemq.plugin.sender.BufferingSender;
+import com.hivemq.plugin.sender.ChunkedTransport;
+import com.hivemq.plugin.sender.DeferredTransport;
+import com.hivemq.plugin.sender.FileTransport;
+import com.hivemq.plugin.sender.HttpTransport;
+import com.hivemq.plugin.sender.IntervalAlignedSender;
+import com.hivemq.plugin.sender.LineProtocolRingBuffer;
+import com.hivemq.plugin.sender.LineProtocolTransport;
+import com.hivemq.plugin.sender.MeasurementMappingSender;
+import com.hivemq.plugin.sender.PointSource;
+import com.hivemq.plugin.sender.PointSourceSender;
+import com.hivemq.plugin.sender.PullEndpointTransport;
+import com.hivemq.plugin.sender.TcpTransport;
+import com.hivemq.plugin.sender.TransportSender;
+import com.hivemq.plugin.sender.UdpTransport;
+import com.hivemq.spi.annotations.NotNull;
+import com.hivemq.spi.annotations.Nullable;
 import com.hivemq.spi.callback.CallbackPriority;
 import com.hivemq.spi.callback.events.broker.OnBrokerStart;
 import com.hivemq.spi.callback.events.broker.OnBrokerStop;
 import com.hivemq.spi.callback.exception.BrokerUnableToStartException;
+import com.hivemq.spi.services.PluginExecutorService;
 import com.izettle.metrics.influxdb.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * @author Christoph Schäbel
@@ -24,19 +58,43 @@ import java.util.concurrent.TimeUnit;
 public class InfluxDbReporting implements OnBrokerStart, OnBrokerStop {
 
     private static final Logger log = LoggerFactory.getLogger(InfluxDbReporting.class);
+    private static final long MAX_CONNECT_BACKOFF_SECONDS = 60;
+    private static final String DEFAULT_HOST_TAG = "hivemq1";
     public static final HashSet<String> METER_FIELDS = Sets.newHashSet("count", "m1_rate", "m5_rate", "m15_rate", "mean_rate");
     public static final HashSet<String> TIMER_FIELDS = Sets.newHashSet("count", "min", "max", "mean", "stddev", "p50", "p75", "p95", "p98", "p99", "p999", "m1_rate", "m5_rate", "m15_rate", "mean_rate");
+    public static final String TIME_TO_FIRST_REPORT = "com.hivemq.plugin.influxdb.time-to-first-report";
+    public static final String BUFFER_USED_BYTES = "com.hivemq.plugin.influxdb.buffer.used-bytes";
+    public static final String BUFFER_CAPACITY = "com.hivemq.plugin.influxdb.buffer.capacity";
+    public static final String BUFFER_RECORDS = "com.hivemq.plugin.influxdb.buffer.records";
+    public static final String BUFFER_DROPPED = "com.hivemq.plugin.influxdb.buffer.dropped";
+    public static final String BUFFER_OVERWRITTEN = "com.hivemq.plugin.influxdb.buffer.overwritten";
+    public static final HashSet<String> TIMER_FIELDS_WITHOUT_PERCENTILES = Sets.newHashSet("count", "min", "max", "mean", "stddev", "m1_rate", "m5_rate", "m15_rate", "mean_rate");
 
     private final MetricRegistry metricRegistry;
     private final InfluxDbConfiguration configuration;
+    private final PluginExecutorService pluginExecutorService;
+    private final TopicTrafficCollector topicTrafficCollector;
+    private final HeavyHitterCollector heavyHitterCollector;
     private InfluxDbSender sender;
     private ScheduledReporter reporter;
+    private ScheduledFuture<?> scheduledReport;
+    private final Lock reportLock = new ReentrantLock();
+    private JvmPauseCollector jvmPauseCollector;
+    private BufferDrainer drainer;
+    private DeferredTransport transport;
+    private volatile MeasurementMappingSender mappingSender;
 
     @Inject
     public InfluxDbReporting(final MetricRegistry metricRegistry,
-                             final InfluxDbConfiguration configuration) {
+                             final InfluxDbConfiguration configuration,
+                             final PluginExecutorService pluginExecutorService,
+                             final TopicTrafficCollector topicTrafficCollector,
+                             final HeavyHitterCollector heavyHitterCollector) {
         this.metricRegistry = metricRegistry;
         this.configuration = configuration;
+        this.pluginExecutorService = pluginExecutorService;
+        this.topicTrafficCollector = topicTrafficCollector;
+        this.heavyHitterCollector = heavyHitterCollector;
     }
 
     @Override
@@ -48,9 +106,7 @@ public class InfluxDbReporting implements OnBrokerStart, OnBrokerStop {
 
     @Override
     public void onBrokerStop() {
-        if (reporter != null) {
-            reporter.stop();
-        }
+        flushAndStopReporting();
     }
 
     @Override
@@ -64,23 +120,247 @@ public class InfluxDbReporting implements OnBrokerStart, OnBrokerStop {
         configuration.setRestartListener(new InfluxDbConfiguration.RestartListener() {
             @Override
             public void restart() {
-                reporter.close();
+                stopReporting();
                 startReporting();
             }
         });
+        configuration.setTemplatesListener(new InfluxDbConfiguration.TemplatesListener() {
+            @Override
+            public void templatesChanged() {
+                final MeasurementMappingSender currentMappingSender = mappingSender;
+                if (currentMappingSender != null) {
+                    currentMappingSender.setMapper(metricNameMapper());
+                    log.info("Applied changed InfluxDB templates");
+                }
+            }
+        });
 
     }
 
     private void startReporting() {
         setupSender();
+        startJvmPauseCollector();
+
+        if (!configuration.staggerReports()) {
+            decorateSender();
+            setupReporter();
+            final long intervalMillis = TimeUnit.SECONDS.toMillis(configuration.reportingInterval());
+            scheduleReports(intervalMillis, intervalMillis);
+            return;
+        }
+
+        final long intervalMillis = TimeUnit.SECONDS.toMillis(configuration.reportingInterval());
+        final String nodeId = nodeIdentity();
+        final long offset = staggerOffset(nodeId, intervalMillis);
+
+        if (sender != null) {
+            sender = new IntervalAlignedSender(sender, intervalMillis, offset);
+        }
+        decorateSender();
         setupReporter();
 
-        reporter.start(configuration.reportingInterval(), TimeUnit.SECONDS);
+        final long now = System.currentTimeMillis();
+        final long nextIntervalStart = now - (now % intervalMillis) + intervalMillis;
+        final long initialDelay = nextIntervalStart + offset - now;
+
+        log.info("Staggering InfluxDB reports for node {} by {} ms inside the reporting interval", nodeId, offset);
+        scheduleReports(initialDelay, intervalMillis);
+    }
+
+    /**
+     * Schedules the reports instead of starting the reporter, so every report runs under the {@link #reportLock}
+     * and the final report on shutdown can wait for a report which is still running.
+     */
+    private void scheduleReports(final long initialDelayMillis, final long intervalMillis) {
+        final ScheduledReporter scheduledReporter = reporter;
+        scheduledReport = pluginExecutorService.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                if (!reportLock.tryLock()) {
+                    log.debug("Skipping InfluxDB report, the previous report is still running");
+                    return;
+                }
+                try {
+                    scheduledReporter.report();
+                } catch (Exception ex) {
+                    log.debug("InfluxDB report failed: ", ex);
+                } finally {
+                    reportLock.unlock();
+                }
+            }
+        }, initialDelayMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void stopReporting() {
+        cancelScheduledReport();
+        if (jvmPauseCollector != null) {
+            jvmPauseCollector.stop();
+            jvmPauseCollector = null;
+        }
+        if (reporter != null) {
+            reporter.stop();
+        }
+        if (drainer != null) {
+            drainer.stop();
+            drainer = null;
+        }
+        if (transport != null) {
+            transport.close();
+            transport = null;
+        }
+    }
+
+    /**
+     * Stops reporting like {@link #stopReporting()}, but writes one last report and flushes the send buffer before
+     * the connections are closed, both within the configured shutdown timeout.
+     */
+    private void flushAndStopReporting() {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(configuration.shutdownTimeout());
+
+        cancelScheduledReport();
+        if (jvmPauseCollector != null) {
+            jvmPauseCollector.stop();
+            jvmPauseCollector = null;
+        }
+        if (reporter != null) {
+            reporter.stop();
+            finalReport(reporter, deadline);
+        }
+        if (drainer != null) {
+            drainer.drain(remainingMillis(deadline));
+            drainer = null;
+        }
+        if (transport != null) {
+            transport.close();
+            transport = null;
+        }
+    }
+
+    /**
+     * Reports on a separate thread, so a hanging synchronous write cannot hold up the shutdown of HiveMQ. A report
+     * which is still running is waited for within the deadline, the final report is skipped if it does not finish.
+     */
+    private void finalReport(@NotNull final ScheduledReporter finalReporter, final long deadline) {
+        final Thread reportThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (!reportLock.tryLock(remainingMillis(deadline), TimeUnit.MILLISECONDS)) {
+                        log.warn("Skipping final InfluxDB report, the previous report did not finish within the shutdown timeout of {} ms", configuration.shutdownTimeout());
+                        return;
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                try {
+                    finalReporter.report();
+                } finally {
+                    reportLock.unlock();
+                }
+            }
+        }, "influxdb-final-report");
+        reportThread.setDaemon(true);
+        reportThread.start();
+        try {
+            reportThread.join(Math.max(1, remainingMillis(deadline)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (reportThread.isAlive()) {
+            log.warn("Final InfluxDB report did not finish within the shutdown timeout of {} ms", configuration.shutdownTimeout());
+        }
+    }
+
+    private static long remainingMillis(final long deadline) {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+    }
+
+    private void startJvmPauseCollector() {
+        if (!configuration.jvmPauseMetrics()) {
+            return;
+        }
+        jvmPauseCollector = new JvmPauseCollector(metricRegistry, configuration.jvmHiccupResolution());
+        jvmPauseCollector.start();
+    }
+
+    private void cancelScheduledReport() {
+        if (scheduledReport != null) {
+            scheduledReport.cancel(false);
+            scheduledReport = null;
+        }
+    }
+
+    /**
+     * The identity used to derive the report offset of this node. The configured <code>host</code> tag is preferred,
+     * so the offset stays stable across restarts and machines, the local host name is the fallback. The tag shipped
+     * in the default configuration is the same on every node, so it is ignored.
+     */
+    @NotNull
+    private String nodeIdentity() {
+        final String hostTag = configuration.tags().get("host");
+        if (hostTag != null && !hostTag.equals(DEFAULT_HOST_TAG)) {
+            return hostTag;
+        }
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            log.debug("Not able to resolve local host name, using InfluxDB host {} as node identity", configuration.host());
+            return configuration.host();
+        }
+    }
+
+    /**
+     * Maps a node identity to an offset inside the reporting interval. Murmur3 is used instead of
+     * {@link String#hashCode()} because similar node names (hivemq1, hivemq2, ...) would otherwise end up
+     * only a few milliseconds apart.
+     */
+    @VisibleForTesting
+    static long staggerOffset(@NotNull final String nodeId, final long intervalMillis) {
+        final int hash = Hashing.murmur3_32().hashString(nodeId, StandardCharsets.UTF_8).asInt();
+        return (hash & 0x7fffffffL) % intervalMillis;
+    }
+
+    private void decorateSender() {
+        if (sender == null) {
+            return;
+        }
+        mappingSender = new MeasurementMappingSender(sender, metricNameMapper());
+        sender = mappingSender;
+
+        final List<PointSource> pointSources = new ArrayList<>();
+        if (!"percentiles".equals(configuration.timerExport())) {
+            pointSources.add(new TimerBucketExporter(metricRegistry, configuration.histogramPrecision()));
+        }
+        if (configuration.topicMetrics()) {
+            topicTrafficCollector.reset(configuration.topicMetricsDepth(), configuration.topicMetricsMaxTopics());
+            pointSources.add(topicTrafficCollector);
+        } else {
+            topicTrafficCollector.disable();
+        }
+        if (jvmPauseCollector != null) {
+            pointSources.add(jvmPauseCollector);
+        }
+        if (configuration.heavyHitters()) {
+            heavyHitterCollector.reset(configuration.heavyHittersSketchSize(), configuration.heavyHittersTopK());
+            pointSources.add(heavyHitterCollector);
+        } else {
+            heavyHitterCollector.disable();
+        }
+        if (!pointSources.isEmpty()) {
+            sender = new PointSourceSender(sender, pointSources);
+        }
+    }
+
+    @Nullable
+    private MetricNameMapper metricNameMapper() {
+        final List<MetricTemplate> templates = configuration.templates();
+        return templates.isEmpty() ? null : new MetricNameMapper(templates);
     }
 
     private void setupReporter() {
 
         final Map<String, String> tags = configuration.tags();
+        final HashSet<String> timerFields = "buckets".equals(configuration.timerExport()) ? TIMER_FIELDS_WITHOUT_PERCENTILES : TIMER_FIELDS;
 
         reporter = InfluxDbReporter.forRegistry(metricRegistry)
                 .withTags(tags)
@@ -90,11 +370,73 @@ public class InfluxDbReporting implements OnBrokerStart, OnBrokerStop {
                 .groupGauges(false)
                 .skipIdleMetrics(false)
                 .includeMeterFields(METER_FIELDS)
-                .includeTimerFields(TIMER_FIELDS)
+                .includeTimerFields(timerFields)
                 .build(sender);
     }
 
+    /**
+     * Sets up the sender without connecting to InfluxDB, so the reporter can start right away. The transport is
+     * connected in the background, until then the reports are kept in the send buffer.
+     */
     private void setupSender() {
+        sender = null;
+        mappingSender = null;
+        transport = null;
+
+        final String mode = configuration.mode();
+        if (!mode.equals("http") && !mode.equals("tcp") && !mode.equals("udp") && !mode.equals("pull") && !mode.equals("file")) {
+            log.error("Not able to start InfluxDB sender, unknown mode {}, please check your configuration", mode);
+            return;
+        }
+
+        final DeferredTransport deferredTransport = new DeferredTransport();
+        transport = deferredTransport;
+        registerTimeToFirstReport(deferredTransport);
+
+        if (configuration.bufferSize() > 0) {
+            final LineProtocolRingBuffer buffer = new LineProtocolRingBuffer(configuration.bufferSize(), configuration.bufferOverflowPolicy());
+            drainer = new BufferDrainer(buffer);
+            sender = new BufferingSender(configuration.database(), configuration.prefix(), buffer, drainer);
+            registerBufferMetrics(buffer);
+        } else {
+            sender = new TransportSender(configuration.database(), configuration.prefix(), deferredTransport);
+        }
+
+        connectTransport(deferredTransport, drainer, 0);
+    }
+
+    private void connectTransport(@NotNull final DeferredTransport deferredTransport, @Nullable final BufferDrainer bufferDrainer, final int attempt) {
+        pluginExecutorService.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (deferredTransport.isClosed()) {
+                    return;
+                }
+                final LineProtocolTransport connected;
+                try {
+                    connected = createTransport();
+                } catch (Exception ex) {
+                    log.error("Not able to start InfluxDB sender, retrying in {} seconds: {}", connectBackoffSeconds(attempt + 1), ex.getMessage());
+                    log.debug("Original Exception: ", ex);
+                    connectTransport(deferredTransport, bufferDrainer, attempt + 1);
+                    return;
+                }
+                if (deferredTransport.connect(connected) && bufferDrainer != null) {
+                    bufferDrainer.start(deferredTransport);
+                }
+            }
+        }, connectBackoffSeconds(attempt), TimeUnit.SECONDS);
+    }
+
+    private static long connectBackoffSeconds(final int attempt) {
+        if (attempt == 0) {
+            return 0;
+        }
+        return Math.min(1L << Math.min(attempt - 1, 6), MAX_CONNECT_BACKOFF_SECONDS);
+    }
+
+    @NotNull
+    private LineProtocolTransport createTransport() throws Exception {
         final String host = configuration.host();
         final int port = configuration.port();
         final String protocol = configuration.protocol();
@@ -103,27 +445,73 @@ public class InfluxDbReporting implements OnBrokerStart, OnBrokerStop {
         final int connectTimeout = configuration.connectTimeout();
         final String prefix = configuration.prefix();
 
-        try {
-            switch (configuration.mode()) {
-                case "http":
-                    log.info("Creating InfluxDB HTTP sender for server {}:{} and database {}", host, port, database);
-                    sender = new InfluxDbHttpSender(protocol, host, port, database, auth, TimeUnit.SECONDS, connectTimeout, connectTimeout, prefix);
-                    break;
-                case "tcp":
-                    log.info("Creating InfluxDB TCP sender for server {}:{} and database {}", host, port, database);
-                    sender = new InfluxDbTcpSender(host, port, connectTimeout, database, TimeUnit.SECONDS, prefix);
-                    break;
-                case "udp":
-                    log.info("Creating InfluxDB UDP sender for server {}:{} and database {}", host, port, database);
-                    sender = new InfluxDbUdpSender(host, port, connectTimeout, database, TimeUnit.SECONDS, prefix);
-                    break;
+        switch (configuration.mode()) {
+            case "tcp":
+                log.info("Creating InfluxDB TCP sender for server {}:{} and database {}", host, port, database);
+                return new TcpTransport(host, port, connectTimeout, database, prefix);
+            case "udp":
+                log.info("Creating InfluxDB UDP sender for server {}:{} and database {}", host, port, database);
+                return new UdpTransport(host, port, connectTimeout, database, prefix);
+            case "pull":
+                log.info("Serving InfluxDB line protocol on {}:{}", configuration.pullBindAddress(), configuration.pullPort());
+                return new PullEndpointTransport(configuration.pullBindAddress(), configuration.pullPort());
+            case "file":
+                log.info("Writing InfluxDB line protocol to directory {}", configuration.fileDirectory().getAbsolutePath());
+                return new FileTransport(configuration.fileDirectory(), database, configuration.fileSegmentSize(),
+                        TimeUnit.SECONDS.toMillis(configuration.fileRotationInterval()), configuration.fileCompression());
+            default:
+                log.info("Creating InfluxDB HTTP sender for server {}:{} and database {}", host, port, database);
+                final HttpTransport httpTransport = new HttpTransport(protocol, host, port, database, auth, connectTimeout);
+                httpTransport.ping();
+                return new ChunkedTransport(httpTransport, configuration.httpChunkSize(), configuration.httpChunkPoints(),
+                        configuration.httpParallelism(), configuration.httpRetries());
+        }
+    }
 
+    private void registerTimeToFirstReport(@NotNull final DeferredTransport deferredTransport) {
+        metricRegistry.remove(TIME_TO_FIRST_REPORT);
+        metricRegistry.register(TIME_TO_FIRST_REPORT, new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return deferredTransport.timeToFirstWriteMillis();
             }
-        } catch (Exception ex) {
-            log.error("Not able to start InfluxDB sender, please check your configuration: {}", ex.getMessage());
-            log.debug("Original Exception: ", ex);
-        }
+        });
+    }
 
+    private void registerBufferMetrics(@NotNull final LineProtocolRingBuffer buffer) {
+        for (String name : new String[]{BUFFER_USED_BYTES, BUFFER_CAPACITY, BUFFER_RECORDS, BUFFER_DROPPED, BUFFER_OVERWRITTEN}) {
+            metricRegistry.remove(name);
+        }
+        metricRegistry.register(BUFFER_USED_BYTES, new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return buffer.usedBytes();
+            }
+        });
+        metricRegistry.register(BUFFER_CAPACITY, new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return buffer.capacity();
+            }
+        });
+        metricRegistry.register(BUFFER_RECORDS, new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return buffer.records();
+            }
+        });
+        metricRegistry.register(BUFFER_DROPPED, new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return buffer.dropped();
+            }
+        });
+        metricRegistry.register(BUFFER_OVERWRITTEN, new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return buffer.overwritten();
+            }
+        });
     }
 
 
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2015 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.plugin.callbacks;
+
+import com.hivemq.plugin.sender.PointSource;
+import com.hivemq.plugin.topics.TopicTrie;
+import com.hivemq.spi.annotations.NotNull;
+import com.hivemq.spi.callback.CallbackPriority;
+import com.hivemq.spi.callback.events.OnPublishReceivedCallback;
+import com.hivemq.spi.callback.exception.OnPublishReceivedException;
+import com.hivemq.spi.message.PUBLISH;
+import com.hivemq.spi.security.ClientData;
+import com.izettle.metrics.influxdb.InfluxDbSender;
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+
+import javax.inject.Singleton;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Counts incoming messages and bytes per topic subtree and reports them as the measurement
+ * <code>topics.traffic</code> with the tag <code>topic</code> and the cumulative fields <code>messages</code>
+ * and <code>bytes</code>.
+ */
+@Singleton
+public class TopicTrafficCollector implements OnPublishReceivedCallback, PointSource {
+
+    public static final String MEASUREMENT = "topics.traffic";
+
+    private volatile TopicTrie trie;
+
+    /**
+     * Starts counting with a new, empty trie. Calling this again discards all counts.
+     */
+    public void reset(final int maxDepth, final int maxTopics) {
+        trie = new TopicTrie(maxDepth, maxTopics);
+    }
+
+    public void disable() {
+        trie = null;
+    }
+
+    @Override
+    public void onPublishReceived(final PUBLISH publish, final ClientData clientData) throws OnPublishReceivedException {
+        final TopicTrie current = trie;
+        if (current != null) {
+            current.record(publish.getTopic(), publish.getPayload().length);
+        }
+    }
+
+    @Override
+    public void appendPoints(@NotNull final InfluxDbSender sender, final long timestamp) {
+        final TopicTrie current = trie;
+        if (current == null) {
+            return;
+        }
+        current.visit(new TopicTrie.Visitor() {
+            @Override
+            public void visit(@NotNull final String topic, final long messages, final long bytes) {
+                final Map<String, Object> fields = new HashMap<>(4);
+                fields.put("messages", messages);
+                fields.put("bytes", bytes);
+                sender.appendPoints(new InfluxDbPoint(MEASUREMENT, Collections.singletonMap("topic", topic), timestamp, fields));
+            }
+        });
+    }
+
+    @Override
+    public int priority() {
+        return CallbackPriority.LOW;
+    }
+}
@@ -15,6 +15,8 @@
  */
 package com.hivemq.plugin.configuration;
 
+import com.hivemq.plugin.mapping.MetricTemplate;
+import com.hivemq.plugin.sender.LineProtocolRingBuffer;
 import com.hivemq.spi.annotations.NotNull;
 import com.hivemq.spi.annotations.Nullable;
 import com.hivemq.spi.config.SystemInformation;
@@ -27,7 +29,10 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.io.File;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
@@ -51,13 +56,41 @@ public class InfluxDbConfiguration extends ReloadingPropertiesReader {
     public static final String CONNECT_TIMEOUT = "connectTimeout";
     public static final String AUTH = "auth";
     public static final String TAGS = "tags";
-
+    public static final String STAGGER_REPORTS = "staggerReports";
+    public static final String TIMER_EXPORT = "timerExport";
+    public static final String HISTOGRAM_PRECISION = "histogramPrecision";
+    public static final String TOPIC_METRICS = "topicMetrics";
+    public static final String TOPIC_METRICS_DEPTH = "topicMetricsDepth";
+    public static final String TOPIC_METRICS_MAX_TOPICS = "topicMetricsMaxTopics";
+    public static final String HEAVY_HITTERS = "heavyHitters";
+    public static final String HEAVY_HITTERS_SKETCH_SIZE = "heavyHittersSketchSize";
+    public static final String HEAVY_HITTERS_TOP_K = "heavyHittersTopK";
+    public static final String JVM_PAUSE_METRICS = "jvmPauseMetrics";
+    public static final String JVM_HICCUP_RESOLUTION = "jvmHiccupResolution";
+    public static final String BUFFER_SIZE = "bufferSize";
+    public static final String BUFFER_OVERFLOW_POLICY = "bufferOverflowPolicy";
+    public static final String HTTP_CHUNK_SIZE = "httpChunkSize";
+    public static final String HTTP_CHUNK_POINTS = "httpChunkPoints";
+    public static final String HTTP_PARALLELISM = "httpParallelism";
+    public static final String HTTP_RETRIES = "httpRetries";
+    public static final String TEMPLATES = "templates";
+    public static final String SHUTDOWN_TIMEOUT = "shutdownTimeout";
+    public static final String PULL_BIND_ADDRESS = "pullBindAddress";
+    public static final String PULL_PORT = "pullPort";
+    public static final String FILE_DIRECTORY = "fileDirectory";
+    public static final String FILE_SEGMENT_SIZE = "fileSegmentSize";
+    public static final String FILE_ROTATION_INTERVAL = "fileRotationInterval";
+    public static final String FILE_COMPRESSION = "fileCompression";
+
+    private final SystemInformation systemInformation;
     private RestartListener listener;
+    private TemplatesListener templatesListener;
 
     @Inject
     public InfluxDbConfiguration(final PluginExecutorService pluginExecutorService,
                                  final SystemInformation systemInformation) {
         super(pluginExecutorService, systemInformation);
+        this.systemInformation = systemInformation;
 
         final ValueChangedCallback<String> callback = new ValueChangedCallback<String>() {
             @Override
@@ -78,6 +111,38 @@ public class InfluxDbConfiguration extends ReloadingPropertiesReader {
         addCallback("auth", callback);
         addCallback("connectTimeout", callback);
         addCallback("tags", callback);
+        addCallback("staggerReports", callback);
+        addCallback("timerExport", callback);
+        addCallback("histogramPrecision", callback);
+        addCallback("topicMetrics", callback);
+        addCallback("topicMetricsDepth", callback);
+        addCallback("topicMetricsMaxTopics", callback);
+        addCallback("heavyHitters", callback);
+        addCallback("heavyHittersSketchSize", callback);
+        addCallback("heavyHittersTopK", callback);
+        addCallback("jvmPauseMetrics", callback);
+        addCallback("jvmHiccupResolution", callback);
+        addCallback("bufferSize", callback);
+        addCallback("bufferOverflowPolicy", callback);
+        addCallback("httpChunkSize", callback);
+        addCallback("httpChunkPoints", callback);
+        addCallback("httpParallelism", callback);
+        addCallback("httpRetries", callback);
+        addCallback("templates", new ValueChangedCallback<String>() {
+            @Override
+            public void valueChanged(final String newValue) {
+                if (templatesListener != null) {
+                    templatesListener.templatesChanged();
+                }
+            }
+        });
+        addCallback("shutdownTimeout", callback);
+        addCallback("pullBindAddress", callback);
+        addCallback("pullPort", callback);
+        addCallback("fileDirectory", callback);
+        addCallback("fileSegmentSize", callback);
+        addCallback("fileRotationInterval", callback);
+        addCallback("fileCompression", callback);
     }
 
     @Override
@@ -197,6 +262,188 @@ public class InfluxDbConfiguration extends ReloadingPropertiesReader {
         }
     }
 
+    public boolean staggerReports() {
+        return booleanProperty(STAGGER_REPORTS, false);
+    }
+
+    /**
+     * @return how timers are exported: <code>percentiles</code>, <code>buckets</code> or <code>both</code>
+     */
+    @NotNull
+    public String timerExport() {
+        final String timerExport = getProperty(TIMER_EXPORT);
+        if (timerExport == null || timerExport.trim().isEmpty()) {
+            return "percentiles";
+        }
+        switch (timerExport.trim()) {
+            case "percentiles":
+            case "buckets":
+            case "both":
+                return timerExport.trim();
+            default:
+                log.error("Invalid value {} for InfluxDB property timerExport, using default: percentiles", timerExport);
+                return "percentiles";
+        }
+    }
+
+    /**
+     * @return the number of bits used for the sub buckets of every power of two in timer bucket export
+     */
+    public int histogramPrecision() {
+        final int precision = intProperty(HISTOGRAM_PRECISION, 3, 1);
+        if (precision > 6) {
+            log.error("Invalid value {} for InfluxDB property histogramPrecision, using default: 3", precision);
+            return 3;
+        }
+        return precision;
+    }
+
+    public boolean topicMetrics() {
+        return booleanProperty(TOPIC_METRICS, false);
+    }
+
+    public int topicMetricsDepth() {
+        return intProperty(TOPIC_METRICS_DEPTH, 2, 1);
+    }
+
+    public int topicMetricsMaxTopics() {
+        return intProperty(TOPIC_METRICS_MAX_TOPICS, 1000, 1);
+    }
+
+    public boolean heavyHitters() {
+        return booleanProperty(HEAVY_HITTERS, false);
+    }
+
+    public int heavyHittersSketchSize() {
+        return intProperty(HEAVY_HITTERS_SKETCH_SIZE, 256, 1);
+    }
+
+    public int heavyHittersTopK() {
+        return intProperty(HEAVY_HITTERS_TOP_K, 10, 1);
+    }
+
+    public boolean jvmPauseMetrics() {
+        return booleanProperty(JVM_PAUSE_METRICS, false);
+    }
+
+    /**
+     * @return the sleep interval of the hiccup recorder in milliseconds
+     */
+    public int jvmHiccupResolution() {
+        return intProperty(JVM_HICCUP_RESOLUTION, 1, 1);
+    }
+
+    /**
+     * @return the size of the off-heap send buffer in bytes, 0 if reports are sent synchronously
+     */
+    public int bufferSize() {
+        return intProperty(BUFFER_SIZE, 4194304, 0);
+    }
+
+    @NotNull
+    public LineProtocolRingBuffer.OverflowPolicy bufferOverflowPolicy() {
+        final String policy = getProperty(BUFFER_OVERFLOW_POLICY);
+        if (policy == null || policy.trim().isEmpty()) {
+            return LineProtocolRingBuffer.OverflowPolicy.OVERWRITE;
+        }
+        switch (policy.trim()) {
+            case "overwrite":
+                return LineProtocolRingBuffer.OverflowPolicy.OVERWRITE;
+            case "drop":
+                return LineProtocolRingBuffer.OverflowPolicy.DROP;
+            default:
+                log.error("Invalid value {} for InfluxDB property bufferOverflowPolicy, using default: overwrite", policy);
+                return LineProtocolRingBuffer.OverflowPolicy.OVERWRITE;
+        }
+    }
+
+    /**
+     * @return the maximum size of a single HTTP request body in bytes
+     */
+    public int httpChunkSize() {
+        return intProperty(HTTP_CHUNK_SIZE, 1048576, 1);
+    }
+
+    /**
+     * @return the maximum number of points in a single HTTP request
+     */
+    public int httpChunkPoints() {
+        return intProperty(HTTP_CHUNK_POINTS, 5000, 1);
+    }
+
+    /**
+     * @return the maximum number of concurrent HTTP requests of a report
+     */
+    public int httpParallelism() {
+        return intProperty(HTTP_PARALLELISM, 4, 1);
+    }
+
+    /**
+     * @return how often a failed HTTP request is retried
+     */
+    public int httpRetries() {
+        return intProperty(HTTP_RETRIES, 2, 0);
+    }
+
+    /**
+     * @return the time in milliseconds the final report and flush on shutdown may take
+     */
+    public int shutdownTimeout() {
+        return intProperty(SHUTDOWN_TIMEOUT, 5000, 0);
+    }
+
+    @NotNull
+    public String pullBindAddress() {
+        final String bindAddress = getProperty(PULL_BIND_ADDRESS);
+        if (bindAddress == null || bindAddress.trim().isEmpty()) {
+            return "127.0.0.1";
+        }
+        return bindAddress.trim();
+    }
+
+    public int pullPort() {
+        final int port = intProperty(PULL_PORT, 8087, 1);
+        if (port > 65535) {
+            log.error("Invalid value {} for InfluxDB property pullPort, using default: 8087", port);
+            return 8087;
+        }
+        return port;
+    }
+
+    /**
+     * @return the directory of the line protocol files in file mode, relative paths are resolved against the HiveMQ data folder
+     */
+    @NotNull
+    public File fileDirectory() {
+        final String directory = getProperty(FILE_DIRECTORY);
+        if (directory == null || directory.trim().isEmpty()) {
+            return new File(systemInformation.getDataFolder(), "influxdb");
+        }
+        final File file = new File(directory.trim());
+        if (file.isAbsolute()) {
+            return file;
+        }
+        return new File(systemInformation.getDataFolder(), directory.trim());
+    }
+
+    /**
+     * @return the size of a line protocol file in file mode in bytes
+     */
+    public int fileSegmentSize() {
+        return intProperty(FILE_SEGMENT_SIZE, 67108864, 1024);
+    }
+
+    /**
+     * @return the time in seconds after which a new line protocol file is started in file mode, 0 to rotate by size only
+     */
+    public int fileRotationInterval() {
+        return intProperty(FILE_ROTATION_INTERVAL, 3600, 0);
+    }
+
+    public boolean fileCompression() {
+        return booleanProperty(FILE_COMPRESSION, false);
+    }
+
     @Nullable
     public String auth() {
         return getProperty(AUTH);
@@ -211,6 +458,10 @@ public class InfluxDbConfiguration extends ReloadingPropertiesReader {
         this.listener = listener;
     }
 
+    public void setTemplatesListener(final TemplatesListener templatesListener) {
+        this.templatesListener = templatesListener;
+    }
+
     @NotNull
     public Map<String, String> tags() {
 
@@ -240,7 +491,69 @@ public class InfluxDbConfiguration extends ReloadingPropertiesReader {
         return tagMap;
     }
 
+    private boolean booleanProperty(@NotNull final String key, final boolean defaultValue) {
+        final String value = getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        final String trimmed = value.trim();
+        if ("true".equalsIgnoreCase(trimmed)) {
+            return true;
+        }
+        if ("false".equalsIgnoreCase(trimmed)) {
+            return false;
+        }
+        log.error("Invalid format {} for InfluxDB property {}, using default: {}", value, key, defaultValue);
+        return defaultValue;
+    }
+
+    private int intProperty(@NotNull final String key, final int defaultValue, final int minValue) {
+        final String value = getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            final int parsed = Integer.parseInt(value.trim());
+            if (parsed < minValue) {
+                log.error("Invalid value {} for InfluxDB property {}, using default: {}", parsed, key, defaultValue);
+                return defaultValue;
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            log.error("Invalid format {} for InfluxDB property {}, using default: {}", value, key, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    @NotNull
+    public List<MetricTemplate> templates() {
+        final List<MetricTemplate> templates = new ArrayList<>();
+        final String property = getProperty(TEMPLATES);
+        if (property == null) {
+            return templates;
+        }
+
+        for (String template : StringUtils.split(property, ";")) {
+            if (template.trim().isEmpty()) {
+                continue;
+            }
+            try {
+                templates.add(MetricTemplate.parse(template));
+            } catch (IllegalArgumentException e) {
+                log.warn("Invalid template format {} for InfluxDB: {}", template, e.getMessage());
+            }
+        }
+        return templates;
+    }
+
     public interface RestartListener {
         void restart();
     }
+
+    /**
+     * Notified if the templates changed, they are applied without a restart.
+     */
+    public interface TemplatesListener {
+        void templatesChanged();
+    }
 }
\ No newline at end of file
@@ -60,6 +60,31 @@ abstract class ReloadingPropertiesReader {
     private final static String ENV_VAR_REPORTING_INTERVAL = "HIVEMQ_INFLUX_DB_PLUGIN_REPORTING_INTERVAL";
     private final static String ENV_VAR_CONNECTION_TIMEOUT = "HIVEMQ_INFLUX_DB_PLUGIN_CONNECTION_TIMEOUT";
     private final static String ENV_VAR_TAGS = "HIVEMQ_INFLUX_DB_PLUGIN_TAGS";
+    private final static String ENV_VAR_STAGGER_REPORTS = "HIVEMQ_INFLUX_DB_PLUGIN_STAGGER_REPORTS";
+    private final static String ENV_VAR_TIMER_EXPORT = "HIVEMQ_INFLUX_DB_PLUGIN_TIMER_EXPORT";
+    private final static String ENV_VAR_HISTOGRAM_PRECISION = "HIVEMQ_INFLUX_DB_PLUGIN_HISTOGRAM_PRECISION";
+    private final static String ENV_VAR_TOPIC_METRICS = "HIVEMQ_INFLUX_DB_PLUGIN_TOPIC_METRICS";
+    private final static String ENV_VAR_TOPIC_METRICS_DEPTH = "HIVEMQ_INFLUX_DB_PLUGIN_TOPIC_METRICS_DEPTH";
+    private final static String ENV_VAR_TOPIC_METRICS_MAX_TOPICS = "HIVEMQ_INFLUX_DB_PLUGIN_TOPIC_METRICS_MAX_TOPICS";
+    private final static String ENV_VAR_HEAVY_HITTERS = "HIVEMQ_INFLUX_DB_PLUGIN_HEAVY_HITTERS";
+    private final static String ENV_VAR_HEAVY_HITTERS_SKETCH_SIZE = "HIVEMQ_INFLUX_DB_PLUGIN_HEAVY_HITTERS_SKETCH_SIZE";
+    private final static String ENV_VAR_HEAVY_HITTERS_TOP_K = "HIVEMQ_INFLUX_DB_PLUGIN_HEAVY_HITTERS_TOP_K";
+    private final static String ENV_VAR_JVM_PAUSE_METRICS = "HIVEMQ_INFLUX_DB_PLUGIN_JVM_PAUSE_METRICS";
+    private final static String ENV_VAR_JVM_HICCUP_RESOLUTION = "HIVEMQ_INFLUX_DB_PLUGIN_JVM_HICCUP_RESOLUTION";
+    private final static String ENV_VAR_BUFFER_SIZE = "HIVEMQ_INFLUX_DB_PLUGIN_BUFFER_SIZE";
+    private final static String ENV_VAR_BUFFER_OVERFLOW_POLICY = "HIVEMQ_INFLUX_DB_PLUGIN_BUFFER_OVERFLOW_POLICY";
+    private final static String ENV_VAR_HTTP_CHUNK_SIZE = "HIVEMQ_INFLUX_DB_PLUGIN_HTTP_CHUNK_SIZE";
+    private final static String ENV_VAR_HTTP_CHUNK_POINTS = "HIVEMQ_INFLUX_DB_PLUGIN_HTTP_CHUNK_POINTS";
+    private final static String ENV_VAR_HTTP_PARALLELISM = "HIVEMQ_INFLUX_DB_PLUGIN_HTTP_PARALLELISM";
+    private final static String ENV_VAR_HTTP_RETRIES = "HIVEMQ_INFLUX_DB_PLUGIN_HTTP_RETRIES";
+    private final static String ENV_VAR_TEMPLATES = "HIVEMQ_INFLUX_DB_PLUGIN_TEMPLATES";
+    private final static String ENV_VAR_SHUTDOWN_TIMEOUT = "HIVEMQ_INFLUX_DB_PLUGIN_SHUTDOWN_TIMEOUT";
+    private final static String ENV_VAR_PULL_BIND_ADDRESS = "HIVEMQ_INFLUX_DB_PLUGIN_PULL_BIND_ADDRESS";
+    private final static String ENV_VAR_PULL_PORT = "HIVEMQ_INFLUX_DB_PLUGIN_PULL_PORT";
+    private final static String ENV_VAR_FILE_DIRECTORY = "HIVEMQ_INFLUX_DB_PLUGIN_FILE_DIRECTORY";
+    private final static String ENV_VAR_FILE_SEGMENT_SIZE = "HIVEMQ_INFLUX_DB_PLUGIN_FILE_SEGMENT_SIZE";
+    private final static String ENV_VAR_FILE_ROTATION_INTERVAL = "HIVEMQ_INFLUX_DB_PLUGIN_FILE_ROTATION_INTERVAL";
+    private final static String ENV_VAR_FILE_COMPRESSION = "HIVEMQ_INFLUX_DB_PLUGIN_FILE_COMPRESSION";
 
 
     ReloadingPropertiesReader(final PluginExecutorService pluginExecutorService,
@@ -156,6 +181,106 @@ abstract class ReloadingPropertiesReader {
             props.put(InfluxDbConfiguration.TAGS, System.getenv(ENV_VAR_TAGS));
         }
 
+        if(System.getenv(ENV_VAR_STAGGER_REPORTS)!=null){
+            props.put(InfluxDbConfiguration.STAGGER_REPORTS, System.getenv(ENV_VAR_STAGGER_REPORTS));
+        }
+
+        if(System.getenv(ENV_VAR_TIMER_EXPORT)!=null){
+            props.put(InfluxDbConfiguration.TIMER_EXPORT, System.getenv(ENV_VAR_TIMER_EXPORT));
+        }
+
+        if(System.getenv(ENV_VAR_HISTOGRAM_PRECISION)!=null){
+            props.put(InfluxDbConfiguration.HISTOGRAM_PRECISION, System.getenv(ENV_VAR_HISTOGRAM_PRECISION));
+        }
+
+        if(System.getenv(ENV_VAR_TOPIC_METRICS)!=null){
+            props.put(InfluxDbConfiguration.TOPIC_METRICS, System.getenv(ENV_VAR_TOPIC_METRICS));
+        }
+
+        if(System.getenv(ENV_VAR_TOPIC_METRICS_DEPTH)!=null){
+            props.put(InfluxDbConfiguration.TOPIC_METRICS_DEPTH, System.getenv(ENV_VAR_TOPIC_METRICS_DEPTH));
+        }
+
+        if(System.getenv(ENV_VAR_TOPIC_METRICS_MAX_TOPICS)!=null){
+            props.put(InfluxDbConfiguration.TOPIC_METRICS_MAX_TOPICS, System.getenv(ENV_VAR_TOPIC_METRICS_MAX_TOPICS));
+        }
+
+        if(System.getenv(ENV_VAR_HEAVY_HITTERS)!=null){
+            props.put(InfluxDbConfiguration.HEAVY_HITTERS, System.getenv(ENV_VAR_HEAVY_HITTERS));
+        }
+
+        if(System.getenv(ENV_VAR_HEAVY_HITTERS_SKETCH_SIZE)!=null){
+            props.put(InfluxDbConfiguration.HEAVY_HITTERS_SKETCH_SIZE, System.getenv(ENV_VAR_HEAVY_HITTERS_SKETCH_SIZE));
+        }
+
+        if(System.getenv(ENV_VAR_HEAVY_HITTERS_TOP_K)!=null){
+            props.put(InfluxDbConfiguration.HEAVY_HITTERS_TOP_K, System.getenv(ENV_VAR_HEAVY_HITTERS_TOP_K));
+        }
+
+        if(System.getenv(ENV_VAR_JVM_PAUSE_METRICS)!=null){
+            props.put(InfluxDbConfiguration.JVM_PAUSE_METRICS, System.getenv(ENV_VAR_JVM_PAUSE_METRICS));
+        }
+
+        if(System.getenv(ENV_VAR_JVM_HICCUP_RESOLUTION)!=null){
+            props.put(InfluxDbConfiguration.JVM_HICCUP_RESOLUTION, System.getenv(ENV_VAR_JVM_HICCUP_RESOLUTION));
+        }
+
+        if(System.getenv(ENV_VAR_BUFFER_SIZE)!=null){
+            props.put(InfluxDbConfiguration.BUFFER_SIZE, System.getenv(ENV_VAR_BUFFER_SIZE));
+        }
+
+        if(System.getenv(ENV_VAR_BUFFER_OVERFLOW_POLICY)!=null){
+            props.put(InfluxDbConfiguration.BUFFER_OVERFLOW_POLICY, System.getenv(ENV_VAR_BUFFER_OVERFLOW_POLICY));
+        }
+
+        if(System.getenv(ENV_VAR_HTTP_CHUNK_SIZE)!=null){
+            props.put(InfluxDbConfiguration.HTTP_CHUNK_SIZE, System.getenv(ENV_VAR_HTTP_CHUNK_SIZE));
+        }
+
+        if(System.getenv(ENV_VAR_HTTP_CHUNK_POINTS)!=null){
+            props.put(InfluxDbConfiguration.HTTP_CHUNK_POINTS, System.getenv(ENV_VAR_HTTP_CHUNK_POINTS));
+        }
+
+        if(System.getenv(ENV_VAR_HTTP_PARALLELISM)!=null){
+            props.put(InfluxDbConfiguration.HTTP_PARALLELISM, System.getenv(ENV_VAR_HTTP_PARALLELISM));
+        }
+
+        if(System.getenv(ENV_VAR_HTTP_RETRIES)!=null){
+            props.put(InfluxDbConfiguration.HTTP_RETRIES, System.getenv(ENV_VAR_HTTP_RETRIES));
+        }
+
+        if(System.getenv(ENV_VAR_TEMPLATES)!=null){
+            props.put(InfluxDbConfiguration.TEMPLATES, System.getenv(ENV_VAR_TEMPLATES));
+        }
+
+        if(System.getenv(ENV_VAR_SHUTDOWN_TIMEOUT)!=null){
+            props.put(InfluxDbConfiguration.SHUTDOWN_TIMEOUT, System.getenv(ENV_VAR_SHUTDOWN_TIMEOUT));
+        }
+
+        if(System.getenv(ENV_VAR_PULL_BIND_ADDRESS)!=null){
+            props.put(InfluxDbConfiguration.PULL_BIND_ADDRESS, System.getenv(ENV_VAR_PULL_BIND_ADDRESS));
+        }
+
+        if(System.getenv(ENV_VAR_PULL_PORT)!=null){
+            props.put(InfluxDbConfiguration.PULL_PORT, System.getenv(ENV_VAR_PULL_PORT));
+        }
+
+        if(System.getenv(ENV_VAR_FILE_DIRECTORY)!=null){
+            props.put(InfluxDbConfiguration.FILE_DIRECTORY, System.getenv(ENV_VAR_FILE_DIRECTORY));
+        }
+
+        if(System.getenv(ENV_VAR_FILE_SEGMENT_SIZE)!=null){
+            props.put(InfluxDbConfiguration.FILE_SEGMENT_SIZE, System.getenv(ENV_VAR_FILE_SEGMENT_SIZE));
+        }
+
+        if(System.getenv(ENV_VAR_FILE_ROTATION_INTERVAL)!=null){
+            props.put(InfluxDbConfiguration.FILE_ROTATION_INTERVAL, System.getenv(ENV_VAR_FILE_ROTATION_INTERVAL));
+        }
+
+        if(System.getenv(ENV_VAR_FILE_COMPRESSION)!=null){
+            props.put(InfluxDbConfiguration.FILE_COMPRESSION, System.getenv(ENV_VAR_FILE_COMPRESSION));
+        }
+
 
 
 
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2015 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.plugin.histogram;
+
+/**
+ * Log-linear bucketing in the style of HdrHistogram: every power of two is split into
+ * <code>2^subBucketBits</code> linear sub buckets, so the relative error of a bucket is bounded by
+ * <code>1 / 2^subBucketBits</code> regardless of the magnitude of the value.
+ * <p>
+ * The bucket layout only depends on <code>subBucketBits</code>, so buckets written by different nodes with
+ * the same precision can be summed up to a cluster wide distribution.
+ */
+public class LogBuckets {
+
+    private final int subBucketBits;
+    private final int subBucketCount;
+
+    public LogBuckets(final int subBucketBits) {
+        if (subBucketBits < 1 || subBucketBits > 6) {
+            throw new IllegalArgumentException("Sub bucket bits must be between 1 and 6, was " + subBucketBits);
+        }
+        this.subBucketBits = subBucketBits;
+        this.subBucketCount = 1 << subBucketBits;
+    }
+
+    /**
+     * @return the index of the bucket containing the value, indices are ordered by value.
+     */
+    public int index(final long value) {
+        if (value <= 0) {
+            return 0;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        final long remainder = value - (1L << exponent);
+        final long subBucket;
+        if (exponent >= subBucketBits) {
+            subBucket = remainder >>> (exponent - subBucketBits);
+        } else {
+            subBucket = remainder << (subBucketBits - exponent);
+        }
+        return (exponent << subBucketBits) + (int) subBucket + 1;
+    }
+
+    /**
+     * @return the exclusive upper bound of the values in the bucket with the given index.
+     */
+    public double upperBound(final int index) {
+        if (index <= 0) {
+            return 0;
+        }
+        final int key = index - 1;
+        final int exponent = key >>> subBucketBits;
+        final int subBucket = key & (subBucketCount - 1);
+        return Math.pow(2, exponent) * (1 + (double) (subBucket + 1) / subBucketCount);
+    }
+
+    /**
+     * @return the number of bucket indices needed to cover all positive long values.
+     */
+    public int size() {
+        return (64 << subBucketBits) + 1;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2015 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.plugin.histogram;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.WeightedSnapshot;
+import com.hivemq.plugin.sender.PointSource;
+import com.hivemq.spi.annotations.NotNull;
+import com.izettle.metrics.influxdb.InfluxDbSender;
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exports the distribution of every {@link Timer} as sparse log bucket counts, so latencies can be merged
+ * across cluster nodes. Percentiles of single nodes cannot be aggregated, bucket counts can simply be summed up.
+ * <p>
+ * For every timer and non-empty bucket one point <code>&lt;timer&gt;.buckets</code> with the tag <code>le</code>
+ * (upper bound of the bucket in milliseconds) and the field <code>count</code> is written. The counts are deltas,
+ * their sum is the number of events recorded since the previous report. The events are distributed over the buckets
+ * like the samples in the reservoir of the timer, weighted like the percentiles of the timer. The reservoir covers
+ * more than one interval (about five minutes for the default exponentially decaying reservoir), so the buckets
+ * approximate the recent distribution and not the exact distribution of the interval. Buckets without events and
+ * idle timers are skipped.
+ * <p>
+ * The first report only records the counts as baseline, otherwise every restart of the reporting would add the
+ * whole lifetime of all timers to the summed up distribution. Timers registered later start at 0.
+ */
+public class TimerBucketExporter implements PointSource {
+
+    private static final String MEASUREMENT_SUFFIX = ".buckets";
+    private static final int WEIGHT_SEARCH_STEPS = 40;
+
+    private final MetricRegistry metricRegistry;
+    private final LogBuckets buckets;
+    private final String[] upperBoundTags;
+    private final Map<String, Long> lastCounts = new HashMap<>();
+    private boolean baselineRecorded;
+
+    public TimerBucketExporter(@NotNull final MetricRegistry metricRegistry, final int subBucketBits) {
+        this.metricRegistry = metricRegistry;
+        this.buckets = new LogBuckets(subBucketBits);
+        this.upperBoundTags = new String[buckets.size()];
+    }
+
+    @Override
+    public void appendPoints(@NotNull final InfluxDbSender sender, final long timestamp) {
+        final SortedMap<String, Timer> timers = metricRegistry.getTimers();
+        lastCounts.keySet().retainAll(timers.keySet());
+
+        for (Map.Entry<String, Timer> entry : timers.entrySet()) {
+            final Timer timer = entry.getValue();
+            final long count = timer.getCount();
+            final Long lastCount = lastCounts.put(entry.getKey(), count);
+            if (lastCount == null && !baselineRecorded) {
+                continue;
+            }
+            final long delta = lastCount == null ? count : count - lastCount;
+            if (delta <= 0) {
+                continue;
+            }
+            appendBuckets(sender, entry.getKey() + MEASUREMENT_SUFFIX, timer.getSnapshot(), delta, timestamp);
+        }
+        baselineRecorded = true;
+    }
+
+    /**
+     * The sampled values are sorted, so all values of a bucket are adjacent. The counts are distributed with
+     * cumulative rounding, which keeps the sum of all buckets equal to the delta.
+     */
+    private void appendBuckets(final InfluxDbSender sender, final String measurement, final Snapshot snapshot,
+                               final long delta, final long timestamp) {
+        final long[] values = snapshot.getValues();
+        if (values.length == 0) {
+            return;
+        }
+        long emitted = 0;
+        int i = 0;
+        while (i < values.length) {
+            final int index = buckets.index(values[i]);
+            while (i < values.length && buckets.index(values[i]) == index) {
+                i++;
+            }
+            final long cumulative = Math.round(cumulativeWeight(snapshot, values, i) * delta);
+            final long bucketCount = cumulative - emitted;
+            if (bucketCount <= 0) {
+                continue;
+            }
+            emitted = cumulative;
+
+            final Map<String, Object> fields = new HashMap<>(2);
+            fields.put("count", bucketCount);
+            sender.appendPoints(new InfluxDbPoint(measurement, Collections.singletonMap("le", upperBoundTag(index)), timestamp, fields));
+        }
+    }
+
+    /**
+     * The share of the samples <code>values[0]</code> to <code>values[end - 1]</code> in the snapshot. The weights
+     * of a {@link WeightedSnapshot} are not exposed, so the share is searched in its quantile function: it is the
+     * smallest quantile whose value is larger than the last of the samples.
+     */
+    private static double cumulativeWeight(final Snapshot snapshot, final long[] values, final int end) {
+        if (end >= values.length) {
+            return 1.0;
+        }
+        if (!(snapshot instanceof WeightedSnapshot)) {
+            return (double) end / values.length;
+        }
+        final long last = values[end - 1];
+        double low = 0.0;
+        double high = 1.0;
+        for (int i = 0; i < WEIGHT_SEARCH_STEPS; i++) {
+            final double quantile = (low + high) / 2;
+            if (snapshot.getValue(quantile) > last) {
+                high = quantile;
+            } else {
+                low = quantile;
+            }
+        }
+        return high;
+    }
+
+    private String upperBoundTag(final int index) {
+        String tag = upperBoundTags[index];
+        if (tag == null) {
+            final double millis = buckets.upperBound(index) / TimeUnit.MILLISECONDS.toNanos(1);
+            tag = new BigDecimal(millis).round(new MathContext(6)).stripTrailingZeros().toPlainString();
+            upperBoundTags[index] = tag;
+        }
+        return tag;
+    }
+}
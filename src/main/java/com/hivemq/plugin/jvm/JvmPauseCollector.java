@@ -0,0 +1,206 @@
+/*
+ * Copyright 2015 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.plugin.jvm;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.hivemq.plugin.histogram.LogBuckets;
+import com.hivemq.plugin.sender.PointSource;
+import com.hivemq.spi.annotations.NotNull;
+import com.izettle.metrics.influxdb.InfluxDbSender;
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+import com.sun.management.GarbageCollectionNotificationInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records JVM pauses, so they are reported with the HiveMQ metrics:
+ * <ul>
+ * <li><code>jvm.gc.pause</code> - the duration of every stop the world garbage collection, taken from the
+ * notifications of the {@link GarbageCollectorMXBean}s. Concurrent cycles are only recorded per collector as
+ * <code>jvm.gc.&lt;collector&gt;.time</code></li>
+ * <li><code>jvm.hiccup</code> - jHiccup style: a thread sleeps for the resolution and records how much longer than
+ * expected it took to wake up. This catches every pause of the process, e.g. safepoints, GC and OS scheduling</li>
+ * </ul>
+ * The GC pauses are recorded as {@link Timer}s in the {@link MetricRegistry}, so they are converted to milliseconds
+ * like all other timers. The GC listener costs nothing while no collection happens.
+ * <p>
+ * The hiccup recorder takes about 1000 samples per second, a timer reservoir would sample a single long pause away.
+ * The samples are counted in log buckets owned by this collector instead, without allocating, and written once per
+ * report as the point <code>jvm.hiccup</code> with the exact maximum and percentiles of the interval in milliseconds.
+ */
+public class JvmPauseCollector implements PointSource {
+
+    private static final Logger log = LoggerFactory.getLogger(JvmPauseCollector.class);
+
+    public static final String GC_PAUSE = "jvm.gc.pause";
+    public static final String HICCUP = "jvm.hiccup";
+
+    private static final int HICCUP_SUB_BUCKET_BITS = 3;
+    private static final double[] HICCUP_PERCENTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final String[] HICCUP_PERCENTILE_FIELDS = {"p50", "p90", "p99", "p999"};
+
+    private final MetricRegistry metricRegistry;
+    private final long resolutionNanos;
+    private final List<NotificationEmitter> emitters = new ArrayList<>();
+    private final Set<String> registeredTimers = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final LogBuckets hiccupBuckets = new LogBuckets(HICCUP_SUB_BUCKET_BITS);
+    private final AtomicLongArray hiccupCounts = new AtomicLongArray(hiccupBuckets.size());
+    private final AtomicLong hiccupMax = new AtomicLong();
+    private final NotificationListener gcListener = new NotificationListener() {
+        @Override
+        public void handleNotification(final Notification notification, final Object handback) {
+            if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                recordGc(GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData()));
+            }
+        }
+    };
+    private Thread hiccupThread;
+
+    public JvmPauseCollector(final MetricRegistry metricRegistry, final long resolutionMillis) {
+        this.metricRegistry = metricRegistry;
+        this.resolutionNanos = TimeUnit.MILLISECONDS.toNanos(resolutionMillis);
+    }
+
+    public void start() {
+        for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gcBean instanceof NotificationEmitter) {
+                final NotificationEmitter emitter = (NotificationEmitter) gcBean;
+                emitter.addNotificationListener(gcListener, null, null);
+                emitters.add(emitter);
+            }
+        }
+
+        hiccupThread = new Thread(new HiccupRecorder(), "influxdb-hiccup-recorder");
+        hiccupThread.setDaemon(true);
+        hiccupThread.start();
+    }
+
+    /**
+     * Stops recording and removes the GC timers from the metric registry.
+     */
+    public void stop() {
+        for (NotificationEmitter emitter : emitters) {
+            try {
+                emitter.removeNotificationListener(gcListener);
+            } catch (ListenerNotFoundException e) {
+                log.trace("GC listener already removed", e);
+            }
+        }
+        emitters.clear();
+
+        if (hiccupThread != null) {
+            hiccupThread.interrupt();
+            hiccupThread = null;
+        }
+
+        for (String name : registeredTimers) {
+            metricRegistry.remove(name);
+        }
+        registeredTimers.clear();
+    }
+
+    @Override
+    public void appendPoints(@NotNull final InfluxDbSender sender, final long timestamp) {
+        final long[] counts = new long[hiccupCounts.length()];
+        long samples = 0;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = hiccupCounts.getAndSet(i, 0);
+            samples += counts[i];
+        }
+        final long max = hiccupMax.getAndSet(0);
+        if (samples == 0) {
+            return;
+        }
+
+        final Map<String, Object> fields = new HashMap<>(8);
+        fields.put("count", samples);
+        fields.put("max", toMillis(max));
+        int bucket = 0;
+        long cumulative = counts[0];
+        for (int p = 0; p < HICCUP_PERCENTILES.length; p++) {
+            final long rank = (long) Math.ceil(HICCUP_PERCENTILES[p] * samples);
+            while (cumulative < rank && bucket < counts.length - 1) {
+                cumulative += counts[++bucket];
+            }
+            fields.put(HICCUP_PERCENTILE_FIELDS[p], toMillis(Math.min(max, (long) hiccupBuckets.upperBound(bucket))));
+        }
+        sender.appendPoints(new InfluxDbPoint(HICCUP, Collections.<String, String>emptyMap(), timestamp, fields));
+    }
+
+    private void recordGc(final GarbageCollectionNotificationInfo info) {
+        final long duration = info.getGcInfo().getDuration();
+        final String collector = info.getGcName();
+
+        updateTimer(MetricRegistry.name("jvm.gc", collector.replace(' ', '_'), "time"), duration);
+
+        //concurrent collectors report the duration of the whole cycle, which is not a pause of the application
+        if (!collector.contains("Concurrent") && !collector.contains("Cycles")) {
+            updateTimer(GC_PAUSE, duration);
+        }
+    }
+
+    private void updateTimer(final String name, final long durationMillis) {
+        registeredTimers.add(name);
+        metricRegistry.timer(name).update(durationMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void recordHiccup(final long hiccupNanos) {
+        hiccupCounts.incrementAndGet(hiccupBuckets.index(hiccupNanos));
+        long max = hiccupMax.get();
+        while (hiccupNanos > max && !hiccupMax.compareAndSet(max, hiccupNanos)) {
+            max = hiccupMax.get();
+        }
+    }
+
+    private static double toMillis(final long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private class HiccupRecorder implements Runnable {
+
+        @Override
+        public void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                final long start = System.nanoTime();
+                try {
+                    TimeUnit.NANOSECONDS.sleep(resolutionNanos);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                recordHiccup(Math.max(0, System.nanoTime() - start - resolutionNanos));
+            }
+        }
+    }
+}
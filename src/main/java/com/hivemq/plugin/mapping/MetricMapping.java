@@ -0,0 +1,44 @@
+/*
+ * Copyright 2015 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.plugin.mapping;
+
+import com.hivemq.spi.annotations.NotNull;
+
+import java.util.Map;
+
+/**
+ * The measurement and tags a metric name is mapped to.
+ */
+public class MetricMapping {
+
+    private final String measurement;
+    private final Map<String, String> tags;
+
+    public MetricMapping(@NotNull final String measurement, @NotNull final Map<String, String> tags) {
+        this.measurement = measurement;
+        this.tags = tags;
+    }
+
+    @NotNull
+    public String getMeasurement() {
+        return measurement;
+    }
+
+    @NotNull
+    public Map<String, String> getTags() {
+        return tags;
+    }
+}
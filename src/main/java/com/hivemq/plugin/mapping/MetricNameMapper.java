@@ -0,0 +1,63 @@
+/*
+ * Copyright 2015 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.plugin.mapping;
+
+import com.google.common.collect.ImmutableList;
+import com.hivemq.spi.annotations.NotNull;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Maps metric names with the first matching {@link MetricTemplate}. Names no template matches are kept as they are.
+ * <p>
+ * The mapping of every name is cached, so after the first report mapping a name is a single map lookup.
+ * A new mapper is created when the templates are changed.
+ */
+public class MetricNameMapper {
+
+    private final List<MetricTemplate> templates;
+    private final ConcurrentMap<String, MetricMapping> cache = new ConcurrentHashMap<>();
+
+    public MetricNameMapper(@NotNull final List<MetricTemplate> templates) {
+        this.templates = ImmutableList.copyOf(templates);
+    }
+
+    @NotNull
+    public MetricMapping map(@NotNull final String name) {
+        final MetricMapping cached = cache.get(name);
+        if (cached != null) {
+            return cached;
+        }
+        final MetricMapping mapping = compute(name);
+        cache.put(name, mapping);
+        return mapping;
+    }
+
+    private MetricMapping compute(final String name) {
+        final String[] segments = StringUtils.splitPreserveAllTokens(name, '.');
+        for (MetricTemplate template : templates) {
+            final MetricMapping mapping = template.apply(segments);
+            if (mapping != null) {
+                return mapping;
+            }
+        }
+        return new MetricMapping(name, Collections.<String, String>emptyMap());
+    }
+}
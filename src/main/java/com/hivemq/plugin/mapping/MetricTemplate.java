@@ -0,0 +1,116 @@
+/*
+ * Copyright 2015 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.plugin.mapping;
+
+import com.google.common.base.Joiner;
+import com.hivemq.spi.annotations.NotNull;
+import com.hivemq.spi.annotations.Nullable;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A Graphite style template which maps the segments of a dotted metric name to a measurement and tags.
+ * <p>
+ * A template consists of an optional filter and the template itself, separated by whitespace, e.g.
+ * <code>com.hivemq.messages.* .measurement.measurement.direction.measurement*</code>. The filter matches the first
+ * segments of the name, <code>*</code> matches any segment. Every part of the template maps the segment at its
+ * position:
+ * <ul>
+ * <li><code>measurement</code> - the segment is part of the measurement</li>
+ * <li><code>measurement*</code> - this and all following segments are part of the measurement</li>
+ * <li>empty - the segment is dropped</li>
+ * <li>anything else - the segment is the value of the tag with this name</li>
+ * </ul>
+ * Segments after the end of the template are added to the measurement.
+ */
+public class MetricTemplate {
+
+    private static final String MEASUREMENT = "measurement";
+    private static final String MEASUREMENT_REST = "measurement*";
+    private static final String WILDCARD = "*";
+
+    private final String[] filter;
+    private final String[] parts;
+
+    private MetricTemplate(@NotNull final String[] filter, @NotNull final String[] parts) {
+        this.filter = filter;
+        this.parts = parts;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the template has no part which maps to the measurement
+     */
+    @NotNull
+    public static MetricTemplate parse(@NotNull final String template) {
+        final String[] tokens = StringUtils.split(template.trim());
+        if (tokens.length < 1 || tokens.length > 2) {
+            throw new IllegalArgumentException("Invalid template '" + template + "', expected: [filter] template");
+        }
+        final String[] filter = tokens.length == 2 ? StringUtils.splitPreserveAllTokens(tokens[0], '.') : new String[0];
+        final String[] parts = StringUtils.splitPreserveAllTokens(tokens[tokens.length - 1], '.');
+
+        boolean hasMeasurement = false;
+        for (String part : parts) {
+            hasMeasurement |= MEASUREMENT.equals(part) || MEASUREMENT_REST.equals(part);
+        }
+        if (!hasMeasurement) {
+            throw new IllegalArgumentException("Invalid template '" + template + "', no part maps to the measurement");
+        }
+        return new MetricTemplate(filter, parts);
+    }
+
+    /**
+     * @return the mapping of the name or <code>null</code> if the filter does not match the name
+     */
+    @Nullable
+    public MetricMapping apply(@NotNull final String[] segments) {
+        if (segments.length < filter.length) {
+            return null;
+        }
+        for (int i = 0; i < filter.length; i++) {
+            if (!WILDCARD.equals(filter[i]) && !filter[i].equals(segments[i])) {
+                return null;
+            }
+        }
+
+        final List<String> measurement = new ArrayList<>();
+        final Map<String, String> tags = new HashMap<>();
+        int i = 0;
+        for (; i < parts.length && i < segments.length; i++) {
+            final String part = parts[i];
+            if (MEASUREMENT_REST.equals(part)) {
+                break;
+            }
+            if (MEASUREMENT.equals(part)) {
+                measurement.add(segments[i]);
+            } else if (!part.isEmpty()) {
+                tags.put(part, segments[i]);
+            }
+        }
+        for (; i < segments.length; i++) {
+            measurement.add(segments[i]);
+        }
+        if (measurement.isEmpty()) {
+            return null;
+        }
+        return new MetricMapping(Joiner.on('.').join(measurement), Collections.unmodifiableMap(tags));
+    }
+}
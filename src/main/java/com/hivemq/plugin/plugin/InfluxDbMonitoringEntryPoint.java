@@ -16,7 +16,10 @@
 
 package com.hivemq.plugin.plugin;
 
+import com.hivemq.plugin.callbacks.HeavyHitterCollector;
 import com.hivemq.plugin.callbacks.InfluxDbReporting;
+import com.hivemq.plugin.callbacks.TopicTrafficCollector;
+import com.hivemq.plugin.configuration.InfluxDbConfiguration;
 import com.hivemq.spi.PluginEntryPoint;
 
 import javax.annotation.PostConstruct;
@@ -30,11 +33,20 @@ import javax.inject.Inject;
 public class InfluxDbMonitoringEntryPoint extends PluginEntryPoint {
 
     private InfluxDbReporting influxDbReporting;
+    private TopicTrafficCollector topicTrafficCollector;
+    private HeavyHitterCollector heavyHitterCollector;
+    private InfluxDbConfiguration configuration;
 
     @Inject
-    public InfluxDbMonitoringEntryPoint(final InfluxDbReporting influxDbReporting) {
+    public InfluxDbMonitoringEntryPoint(final InfluxDbReporting influxDbReporting,
+                                        final TopicTrafficCollector topicTrafficCollector,
+                                        final HeavyHitterCollector heavyHitterCollector,
+                                        final InfluxDbConfiguration configuration) {
 
         this.influxDbReporting = influxDbReporting;
+        this.topicTrafficCollector = topicTrafficCollector;
+        this.heavyHitterCollector = heavyHitterCollector;
+        this.configuration = configuration;
     }
 
     /**
@@ -44,6 +56,14 @@ public class InfluxDbMonitoringEntryPoint extends PluginEntryPoint {
     @PostConstruct
     public void postConstruct() {
         getCallbackRegistry().addCallback(influxDbReporting);
+
+        //the publish callbacks are only registered if needed, so disabled collectors cost nothing on the publish path
+        if (configuration.topicMetrics()) {
+            getCallbackRegistry().addCallback(topicTrafficCollector);
+        }
+        if (configuration.heavyHitters()) {
+            getCallbackRegistry().addCallback(heavyHitterCollector);
+        }
     }
 
 }
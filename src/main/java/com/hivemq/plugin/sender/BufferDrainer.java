@@ -0,0 +1,176 @@
+/*
+ * Copyright 2015 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.plugin.sender;
+
+import com.hivemq.spi.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The sending side of the buffered pipeline: a single thread which takes the encoded reports from the
+ * {@link LineProtocolRingBuffer} and writes them to the {@link LineProtocolTransport}.
+ * <p>
+ * The thread is started once the transport is connected, until then the reports stay in the buffer. It parks while
+ * the buffer is empty and is woken up by {@link #signal()} after a report was buffered.
+ * <p>
+ * A report is only removed from the buffer after it was written. If a write fails with an I/O or server error, e.g.
+ * because InfluxDB is not reachable, the report stays in the buffer and the write is retried with an increasing
+ * delay of up to 30 seconds. Reports rejected by InfluxDB are discarded.
+ */
+public class BufferDrainer implements Runnable {
+
+    private static final Logger log = LoggerFactory.getLogger(BufferDrainer.class);
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long MIN_RETRY_BACKOFF_MILLIS = 100;
+    private static final long MAX_RETRY_BACKOFF_MILLIS = 30000;
+
+    private final LineProtocolRingBuffer buffer;
+    private volatile LineProtocolTransport transport;
+    private volatile boolean running;
+    private volatile boolean draining;
+    private volatile Thread thread;
+    private volatile long sent;
+    private volatile long failed;
+    private boolean stopped;
+
+    public BufferDrainer(@NotNull final LineProtocolRingBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Starts sending the buffered reports with the transport, does nothing if the drainer was stopped already.
+     */
+    public synchronized void start(@NotNull final LineProtocolTransport transport) {
+        if (stopped) {
+            return;
+        }
+        this.transport = transport;
+        running = true;
+        final Thread drainerThread = new Thread(this, "influxdb-sender");
+        drainerThread.setDaemon(true);
+        thread = drainerThread;
+        drainerThread.start();
+    }
+
+    /**
+     * Stops the thread after the current write. Reports still in the buffer are not sent, their number is logged.
+     */
+    public synchronized void stop() {
+        stopped = true;
+        running = false;
+        signal();
+        final long dropped = buffer.records();
+        if (dropped > 0) {
+            log.warn("Stopped sending to InfluxDB, dropped {} buffered reports", dropped);
+        }
+    }
+
+    /**
+     * Sends the reports remaining in the buffer and stops. Gives up after the timeout, reports still in the buffer
+     * then are dropped. Logs how many reports were flushed and dropped.
+     */
+    public void drain(final long timeoutMillis) {
+        final Thread drainerThread;
+        synchronized (this) {
+            stopped = true;
+            draining = true;
+            drainerThread = thread;
+        }
+        final long sentBefore = sent;
+        final long failedBefore = failed;
+
+        if (drainerThread != null) {
+            signal();
+            try {
+                drainerThread.join(Math.max(1, timeoutMillis));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (drainerThread.isAlive()) {
+                log.warn("Flushing the InfluxDB send buffer did not finish within {} ms", timeoutMillis);
+                running = false;
+                drainerThread.interrupt();
+            }
+        }
+
+        final long flushed = sent - sentBefore;
+        final long dropped = failed - failedBefore + buffer.records();
+        if (dropped > 0) {
+            log.warn("Flushed {} reports to InfluxDB on shutdown, dropped {} reports", flushed, dropped);
+        } else {
+            log.info("Flushed {} reports to InfluxDB on shutdown", flushed);
+        }
+    }
+
+    public void signal() {
+        final Thread drainerThread = thread;
+        if (drainerThread != null) {
+            LockSupport.unpark(drainerThread);
+        }
+    }
+
+    @Override
+    public void run() {
+        int failures = 0;
+        long retryAtNanos = 0;
+        while (running) {
+            if (failures > 0) {
+                final long backoffNanos = retryAtNanos - System.nanoTime();
+                if (backoffNanos > 0) {
+                    LockSupport.parkNanos(this, backoffNanos);
+                    continue;
+                }
+            }
+            final byte[] lines = buffer.peek();
+            if (lines == null) {
+                if (draining) {
+                    return;
+                }
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                continue;
+            }
+            try {
+                transport.write(lines);
+                buffer.commit();
+                sent++;
+                if (failures > 0) {
+                    log.info("Sending to InfluxDB succeeded again after {} failed attempts", failures);
+                    failures = 0;
+                }
+            } catch (Exception ex) {
+                if (!HttpStatusException.isRetryable(ex)) {
+                    buffer.commit();
+                    failed++;
+                    log.warn("Unable to send {} bytes to InfluxDB, discarding data: {}", lines.length, ex.getMessage());
+                    log.debug("Original Exception: ", ex);
+                    continue;
+                }
+                failures++;
+                final long backoffMillis = Math.min(MIN_RETRY_BACKOFF_MILLIS << Math.min(failures - 1, 10), MAX_RETRY_BACKOFF_MILLIS);
+                retryAtNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoffMillis);
+                if (failures == 1) {
+                    log.warn("Unable to send {} bytes to InfluxDB, keeping the data buffered and retrying: {}", lines.length, ex.getMessage());
+                } else {
+                    log.debug("Unable to send {} bytes to InfluxDB, retrying in {} ms: {}", lines.length, backoffMillis, ex.getMessage());
+                }
+                log.debug("Original Exception: ", ex);
+            }
+        }
+    }
+}
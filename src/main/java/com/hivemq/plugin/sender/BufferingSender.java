@@ -0,0 +1,71 @@
+/*
+ * Copyright 2015 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.plugin.sender;
+
+import com.hivemq.spi.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The collecting side of the buffered pipeline: encodes the points of a report to line protocol and hands them to
+ * the {@link LineProtocolRingBuffer} instead of sending them. The {@link BufferDrainer} sends them on its own thread.
+ */
+public class BufferingSender extends LineProtocolSender {
+
+    private static final Logger log = LoggerFactory.getLogger(BufferingSender.class);
+    private static final long TOO_LARGE_WARNING_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final LineProtocolRingBuffer buffer;
+    private final BufferDrainer drainer;
+    private long lastTooLargeWarning;
+    private boolean tooLargeWarned;
+
+    public BufferingSender(@NotNull final String database, @NotNull final String prefix,
+                           @NotNull final LineProtocolRingBuffer buffer, @NotNull final BufferDrainer drainer) {
+        super(database, TimeUnit.SECONDS, prefix);
+        this.buffer = buffer;
+        this.drainer = drainer;
+    }
+
+    @Override
+    protected int writeData(final byte[] line) throws Exception {
+        if (!buffer.offer(line)) {
+            if (line.length > buffer.maxRecordSize()) {
+                warnTooLarge(line.length);
+            } else {
+                log.debug("InfluxDB send buffer is full, dropping report of {} bytes", line.length);
+            }
+        }
+        drainer.signal();
+        return 0;
+    }
+
+    /**
+     * Such a report is dropped every interval and the buffer gauges are dropped with it, so it is logged at most
+     * once a minute.
+     */
+    private void warnTooLarge(final int size) {
+        final long now = System.nanoTime();
+        if (tooLargeWarned && now - lastTooLargeWarning < TOO_LARGE_WARNING_INTERVAL_NANOS) {
+            return;
+        }
+        tooLargeWarned = true;
+        lastTooLargeWarning = now;
+        log.warn("InfluxDB report of {} bytes does not fit into the send buffer of {} bytes and is dropped, please raise bufferSize", size, buffer.capacity());
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2015 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.plugin.sender;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.hivemq.spi.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splits large reports on line boundaries into chunks limited by size and number of points and writes them
+ * concurrently with a bounded number of threads. Every chunk is retried on its own after I/O and server errors, so
+ * a report that exceeds the request limits of InfluxDB is neither rejected as a whole nor sent chunk by chunk.
+ */
+public class ChunkedTransport implements LineProtocolTransport {
+
+    private static final Logger log = LoggerFactory.getLogger(ChunkedTransport.class);
+    private static final long RETRY_BACKOFF_MILLIS = 100;
+
+    private final LineProtocolTransport delegate;
+    private final int maxChunkBytes;
+    private final int maxChunkPoints;
+    private final int retries;
+    private final ExecutorService executorService;
+
+    public ChunkedTransport(@NotNull final LineProtocolTransport delegate, final int maxChunkBytes,
+                            final int maxChunkPoints, final int parallelism, final int retries) {
+        this.delegate = delegate;
+        this.maxChunkBytes = maxChunkBytes;
+        this.maxChunkPoints = maxChunkPoints;
+        this.retries = retries;
+        this.executorService = Executors.newFixedThreadPool(parallelism,
+                new ThreadFactoryBuilder().setNameFormat("influxdb-chunk-sender-%d").setDaemon(true).build());
+    }
+
+    @Override
+    public int write(@NotNull final byte[] lines) throws Exception {
+        final List<byte[]> chunks = split(lines, maxChunkBytes, maxChunkPoints);
+        if (chunks.size() == 1) {
+            return writeWithRetries(chunks.get(0));
+        }
+
+        final List<Future<Integer>> futures = new ArrayList<>(chunks.size());
+        for (final byte[] chunk : chunks) {
+            futures.add(executorService.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    return writeWithRetries(chunk);
+                }
+            }));
+        }
+
+        int responseCode = 0;
+        int failed = 0;
+        Throwable lastFailure = null;
+        Throwable lastRetryableFailure = null;
+        for (Future<Integer> future : futures) {
+            try {
+                responseCode = future.get();
+            } catch (ExecutionException e) {
+                failed++;
+                lastFailure = e.getCause();
+                if (lastFailure instanceof Exception && HttpStatusException.isRetryable((Exception) lastFailure)) {
+                    lastRetryableFailure = lastFailure;
+                }
+            }
+        }
+        if (failed == 0) {
+            return responseCode;
+        }
+        final String message = failed + " of " + chunks.size() + " chunks could not be written to InfluxDB";
+        if (lastRetryableFailure == null && lastFailure instanceof HttpStatusException) {
+            final HttpStatusException rejected = new HttpStatusException(((HttpStatusException) lastFailure).statusCode(), message);
+            rejected.initCause(lastFailure);
+            throw rejected;
+        }
+        throw new IOException(message, lastRetryableFailure != null ? lastRetryableFailure : lastFailure);
+    }
+
+    @Override
+    public void close() {
+        executorService.shutdown();
+        delegate.close();
+    }
+
+    private int writeWithRetries(final byte[] chunk) throws Exception {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return delegate.write(chunk);
+            } catch (Exception ex) {
+                if (attempt >= retries || !HttpStatusException.isRetryable(ex)) {
+                    throw ex;
+                }
+                log.debug("Writing chunk of {} bytes to InfluxDB failed, retrying: {}", chunk.length, ex.getMessage());
+                TimeUnit.MILLISECONDS.sleep(RETRY_BACKOFF_MILLIS << attempt);
+            }
+        }
+    }
+
+    /**
+     * Splits the lines into chunks of at most <code>maxBytes</code> and <code>maxPoints</code>. A single line
+     * larger than <code>maxBytes</code> becomes a chunk of its own.
+     */
+    @VisibleForTesting
+    @NotNull
+    static List<byte[]> split(@NotNull final byte[] lines, final int maxBytes, final int maxPoints) {
+        if (lines.length <= maxBytes && countLines(lines) <= maxPoints) {
+            return Arrays.asList(lines);
+        }
+
+        final List<byte[]> chunks = new ArrayList<>();
+        int chunkStart = 0;
+        int chunkEnd = 0;
+        int points = 0;
+        int lineStart = 0;
+        while (lineStart < lines.length) {
+            int lineEnd = lineStart;
+            while (lineEnd < lines.length && lines[lineEnd] != '\n') {
+                lineEnd++;
+            }
+            if (lineEnd < lines.length) {
+                lineEnd++;
+            }
+            if (points > 0 && (lineEnd - chunkStart > maxBytes || points >= maxPoints)) {
+                chunks.add(Arrays.copyOfRange(lines, chunkStart, chunkEnd));
+                chunkStart = chunkEnd;
+                points = 0;
+            }
+            chunkEnd = lineEnd;
+            points++;
+            lineStart = lineEnd;
+        }
+        if (chunkEnd > chunkStart) {
+            chunks.add(Arrays.copyOfRange(lines, chunkStart, chunkEnd));
+        }
+        return chunks;
+    }
+
+    private static int countLines(final byte[] lines) {
+        int count = 0;
+        for (byte b : lines) {
+            if (b == '\n') {
+                count++;
+            }
+        }
+        if (lines.length > 0 && lines[lines.length - 1] != '\n') {
+            count++;
+        }
+        return count;
+    }
+}
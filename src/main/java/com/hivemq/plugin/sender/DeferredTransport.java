@@ -0,0 +1,82 @@
+/*
+ * Copyright 2015 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.plugin.sender;
+
+import com.hivemq.spi.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link LineProtocolTransport} whose connection is established later, in the background. Writes fail until
+ * {@link #connect(LineProtocolTransport)} was called and after {@link #close()}.
+ * <p>
+ * Also measures the time from creating this transport to the first successful write.
+ */
+public class DeferredTransport implements LineProtocolTransport {
+
+    private final long createdNanos = System.nanoTime();
+    private volatile LineProtocolTransport delegate;
+    private volatile long timeToFirstWriteMillis = -1;
+    private volatile boolean closed;
+
+    /**
+     * @return <code>false</code> if this transport was closed already, the connected transport is closed then
+     */
+    public synchronized boolean connect(@NotNull final LineProtocolTransport connected) {
+        if (closed) {
+            connected.close();
+            return false;
+        }
+        delegate = connected;
+        return true;
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * @return the time from creation to the first successful write in milliseconds, -1 if nothing was written yet
+     */
+    public long timeToFirstWriteMillis() {
+        return timeToFirstWriteMillis;
+    }
+
+    @Override
+    public int write(@NotNull final byte[] lines) throws Exception {
+        if (closed) {
+            throw new IOException("Connection to InfluxDB is closed");
+        }
+        final LineProtocolTransport current = delegate;
+        if (current == null) {
+            throw new IOException("Connection to InfluxDB not established yet");
+        }
+        final int responseCode = current.write(lines);
+        if (timeToFirstWriteMillis < 0) {
+            timeToFirstWriteMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - createdNanos);
+        }
+        return responseCode;
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (delegate != null) {
+            delegate.close();
+        }
+    }
+}
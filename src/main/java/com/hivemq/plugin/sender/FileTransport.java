@@ -0,0 +1,298 @@
+/*
+ * Copyright 2015 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.plugin.sender;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.hivemq.spi.annotations.NotNull;
+import com.hivemq.spi.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Appends the reports to local line protocol files which can be imported later with
+ * <code>influx -import -precision s</code>.
+ * <p>
+ * A segment file is memory mapped in windows of at most {@link #MAX_MAP_WINDOW} bytes, so a write is a copy into the
+ * mapping and the file grows in steps. A segment is closed when it is full or older than the rotation interval: it
+ * is forced to disk, truncated to the written length and, if enabled, gzip compressed in the background.
+ * <p>
+ * Segments which were not closed, e.g. after the JVM was killed, still end with the zero bytes of the last window.
+ * They are truncated after their last complete line when the transport is created.
+ */
+public class FileTransport implements LineProtocolTransport {
+
+    private static final Logger log = LoggerFactory.getLogger(FileTransport.class);
+    private static final String PREFIX = "metrics-";
+    private static final String SUFFIX = ".lp";
+    private static final String COMPRESSED_SUFFIX = ".gz";
+    private static final int MAX_MAP_WINDOW = 1024 * 1024;
+
+    private final File directory;
+    private final String database;
+    private final int segmentSize;
+    private final long rotationIntervalMillis;
+    private final ExecutorService compressionService;
+
+    private FileChannel channel;
+    private File segment;
+    private MappedByteBuffer mapping;
+    private long written;
+    private long segmentStart;
+    private int sequence;
+    private boolean closed;
+
+    /**
+     * @param rotationIntervalMillis the maximum age of a segment, 0 to rotate by size only
+     */
+    public FileTransport(@NotNull final File directory, @NotNull final String database, final int segmentSize,
+                         final long rotationIntervalMillis, final boolean compress) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Not able to create directory " + directory.getAbsolutePath());
+        }
+        this.directory = directory;
+        this.database = database;
+        this.segmentSize = segmentSize;
+        this.rotationIntervalMillis = rotationIntervalMillis;
+        this.compressionService = compress ? Executors.newSingleThreadExecutor(
+                new ThreadFactoryBuilder().setNameFormat("influxdb-file-compression").setDaemon(true).build()) : null;
+        recoverSegments();
+    }
+
+    @Override
+    public synchronized int write(@NotNull final byte[] lines) throws Exception {
+        if (closed) {
+            throw new IOException("InfluxDB metrics file transport for directory " + directory + " is closed");
+        }
+        final long now = System.currentTimeMillis();
+        if (channel != null && (written + lines.length > segmentSize
+                || (rotationIntervalMillis > 0 && now - segmentStart >= rotationIntervalMillis))) {
+            closeSegment();
+        }
+        if (channel == null) {
+            openSegment(now);
+        }
+        append(lines);
+        return 0;
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        try {
+            closeSegment();
+        } catch (IOException e) {
+            log.error("Not able to close InfluxDB metrics file {}: {}", segment, e.getMessage());
+            log.debug("Original Exception: ", e);
+        }
+        if (compressionService != null) {
+            compressionService.shutdown();
+        }
+    }
+
+    private void openSegment(final long now) throws IOException {
+        final String timestamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date(now));
+        while (channel == null) {
+            final File candidate = new File(directory, PREFIX + timestamp + "-" + sequence++ + SUFFIX);
+            if (new File(candidate.getPath() + COMPRESSED_SUFFIX).exists()) {
+                continue;
+            }
+            try {
+                channel = FileChannel.open(candidate.toPath(),
+                        StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                segment = candidate;
+            } catch (FileAlreadyExistsException e) {
+                //written by an earlier transport in the same second
+            }
+        }
+        written = 0;
+        segmentStart = now;
+        append(("# DML\n# CONTEXT-DATABASE: " + database + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void append(@NotNull final byte[] lines) throws IOException {
+        int offset = 0;
+        while (offset < lines.length) {
+            if (mapping == null || !mapping.hasRemaining()) {
+                unmap();
+                mapping = channel.map(FileChannel.MapMode.READ_WRITE, written, Math.min(segmentSize, MAX_MAP_WINDOW));
+            }
+            final int length = Math.min(mapping.remaining(), lines.length - offset);
+            mapping.put(lines, offset, length);
+            offset += length;
+            written += length;
+        }
+    }
+
+    private void closeSegment() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        final File closed = segment;
+        try {
+            unmap();
+            channel.truncate(written);
+            channel.force(true);
+        } finally {
+            channel.close();
+            channel = null;
+            segment = null;
+        }
+        compressLater(closed);
+    }
+
+    private void unmap() {
+        if (mapping == null) {
+            return;
+        }
+        mapping.force();
+        release(mapping);
+        mapping = null;
+    }
+
+    private void recoverSegments() {
+        final File[] segments = directory.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(final File file) {
+                return file.isFile() && file.getName().startsWith(PREFIX) && file.getName().endsWith(SUFFIX);
+            }
+        });
+        if (segments == null) {
+            return;
+        }
+        for (final File file : segments) {
+            try (FileChannel recovered = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                final long size = recovered.size();
+                final long length = lengthOfCompleteLines(recovered);
+                if (length == size) {
+                    continue;
+                }
+                recovered.truncate(length);
+                log.info("Truncated unfinished InfluxDB metrics file {} from {} to {} bytes", file, size, length);
+            } catch (IOException e) {
+                log.error("Not able to recover InfluxDB metrics file {}: {}", file, e.getMessage());
+                log.debug("Original Exception: ", e);
+                continue;
+            }
+            compressLater(file);
+        }
+    }
+
+    private static long lengthOfCompleteLines(@NotNull final FileChannel channel) throws IOException {
+        final ByteBuffer block = ByteBuffer.allocate(64 * 1024);
+        long end = channel.size();
+        while (end > 0) {
+            final long start = Math.max(0, end - block.capacity());
+            block.clear();
+            block.limit((int) (end - start));
+            while (block.hasRemaining() && channel.read(block, start + block.position()) >= 0) {
+                //read the whole block
+            }
+            for (int i = block.position() - 1; i >= 0; i--) {
+                if (block.get(i) == '\n') {
+                    return start + i + 1;
+                }
+            }
+            end = start;
+        }
+        return 0;
+    }
+
+    private void compressLater(@NotNull final File file) {
+        if (compressionService == null) {
+            return;
+        }
+        compressionService.execute(new Runnable() {
+            @Override
+            public void run() {
+                compress(file);
+            }
+        });
+    }
+
+    private static void compress(@NotNull final File source) {
+        final File target = new File(source.getPath() + COMPRESSED_SUFFIX);
+        try (InputStream in = new FileInputStream(source);
+             OutputStream out = new GZIPOutputStream(new FileOutputStream(target))) {
+            final byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            log.error("Not able to compress InfluxDB metrics file {}: {}", source, e.getMessage());
+            log.debug("Original Exception: ", e);
+            if (target.exists() && !target.delete()) {
+                log.warn("Not able to delete incomplete InfluxDB metrics file {}", target);
+            }
+            return;
+        }
+        if (!source.delete()) {
+            log.warn("Not able to delete InfluxDB metrics file {} after compression", source);
+        }
+    }
+
+    /**
+     * Unmaps a mapping right away instead of when it is garbage collected. There is no public API for this, so the
+     * cleaner of the JVM is used if it is accessible. The mapping must not be used afterwards.
+     */
+    private static void release(@Nullable final MappedByteBuffer buffer) {
+        if (buffer == null) {
+            return;
+        }
+        try {
+            //Java 9 and later
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), buffer);
+            return;
+        } catch (Exception e) {
+            //not available, try the cleaner of Java 7 and 8
+        }
+        try {
+            final Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            final Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (Exception e) {
+            log.trace("Not able to unmap InfluxDB metrics file, it is unmapped by the garbage collector", e);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2015 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.plugin.sender;
+
+import com.izettle.metrics.influxdb.InfluxDbSender;
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * An {@link InfluxDbSender} which forwards all calls to another sender. Subclasses override the methods
+ * they want to decorate.
+ */
+public abstract class ForwardingInfluxDbSender implements InfluxDbSender {
+
+    protected final InfluxDbSender delegate;
+
+    protected ForwardingInfluxDbSender(final InfluxDbSender delegate) {
+        this.delegate = checkNotNull(delegate, "Delegate sender must not be null");
+    }
+
+    @Override
+    public void flush() {
+        delegate.flush();
+    }
+
+    @Override
+    public boolean hasSeriesData() {
+        return delegate.hasSeriesData();
+    }
+
+    @Override
+    public void appendPoints(final InfluxDbPoint point) {
+        delegate.appendPoints(point);
+    }
+
+    @Override
+    public int writeData() throws Exception {
+        return delegate.writeData();
+    }
+
+    @Override
+    public void setTags(final Map<String, String> tags) {
+        delegate.setTags(tags);
+    }
+
+    @Override
+    public Map<String, String> getTags() {
+        return delegate.getTags();
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2015 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.plugin.sender;
+
+import com.hivemq.spi.annotations.NotNull;
+
+import java.io.IOException;
+
+/**
+ * Thrown if InfluxDB answered a write with a status code other than 2xx.
+ */
+public class HttpStatusException extends IOException {
+
+    private final int statusCode;
+
+    public HttpStatusException(final int statusCode, final String message) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    public int statusCode() {
+        return statusCode;
+    }
+
+    /**
+     * @return <code>true</code> for 5xx responses, a client error like 400 or 413 fails the same way every time
+     */
+    public boolean isServerError() {
+        return statusCode >= 500;
+    }
+
+    /**
+     * @return <code>true</code> if repeating the failed write may succeed, which is the case for I/O and server errors
+     */
+    public static boolean isRetryable(@NotNull final Exception ex) {
+        if (ex instanceof HttpStatusException) {
+            return ((HttpStatusException) ex).isServerError();
+        }
+        return ex instanceof IOException;
+    }
+}
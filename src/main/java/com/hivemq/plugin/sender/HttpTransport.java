@@ -0,0 +1,139 @@
+/*
+ * Copyright 2015 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.plugin.sender;
+
+import com.google.common.io.BaseEncoding;
+import com.hivemq.spi.annotations.NotNull;
+import com.hivemq.spi.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes already encoded lines to the HTTP API of InfluxDB. A rejected write fails with a {@link HttpStatusException}
+ * carrying the status code and the error returned by InfluxDB.
+ * <p>
+ * The response of every request is read completely and closed, so the connection can be reused for the next request.
+ * A connection whose request failed with an I/O error is disconnected.
+ */
+public class HttpTransport implements LineProtocolTransport {
+
+    private static final int MAX_ERROR_LENGTH = 1024;
+
+    private final URL writeUrl;
+    private final URL pingUrl;
+    private final String authorization;
+    private final int timeout;
+
+    public HttpTransport(@NotNull final String protocol, @NotNull final String host, final int port,
+                         @NotNull final String database, @Nullable final String auth, final int connectTimeout) throws IOException {
+        this.writeUrl = new URL(protocol, host, port, "/write?db=" + URLEncoder.encode(database, "UTF-8") + "&precision=s");
+        this.pingUrl = new URL(protocol, host, port, "/ping");
+        this.authorization = auth == null || auth.isEmpty() ? null
+                : "Basic " + BaseEncoding.base64().encode(auth.getBytes(StandardCharsets.UTF_8));
+        this.timeout = connectTimeout;
+    }
+
+    @Override
+    public int write(@NotNull final byte[] lines) throws Exception {
+        final HttpURLConnection connection = open(writeUrl);
+        try {
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(lines.length);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(lines);
+            }
+            return readResponse(connection, writeUrl);
+        } catch (HttpStatusException e) {
+            throw e;
+        } catch (IOException e) {
+            connection.disconnect();
+            throw e;
+        }
+    }
+
+    /**
+     * Checks if InfluxDB is reachable, creating this transport does not open a connection yet.
+     *
+     * @throws IOException if InfluxDB is not reachable or did not answer with 2xx
+     */
+    public void ping() throws IOException {
+        final HttpURLConnection connection = open(pingUrl);
+        try {
+            readResponse(connection, pingUrl);
+        } catch (HttpStatusException e) {
+            throw e;
+        } catch (IOException e) {
+            connection.disconnect();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        //a connection is only kept by the keep-alive cache of the JVM between requests
+    }
+
+    @NotNull
+    private HttpURLConnection open(@NotNull final URL url) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        if (authorization != null) {
+            connection.setRequestProperty("Authorization", authorization);
+        }
+        connection.setConnectTimeout(timeout);
+        connection.setReadTimeout(timeout);
+        return connection;
+    }
+
+    private static int readResponse(@NotNull final HttpURLConnection connection, @NotNull final URL url) throws IOException {
+        final int responseCode = connection.getResponseCode();
+        if (responseCode / 100 == 2) {
+            drain(connection.getInputStream());
+            return responseCode;
+        }
+        final String error = drain(connection.getErrorStream());
+        throw new HttpStatusException(responseCode, "Server returned HTTP response code " + responseCode
+                + " for URL " + url + ": " + (error.isEmpty() ? connection.getResponseMessage() : error));
+    }
+
+    /**
+     * Reads a response body completely and closes it.
+     *
+     * @return the start of the body, to be used in error messages
+     */
+    @NotNull
+    private static String drain(@Nullable final InputStream body) throws IOException {
+        if (body == null) {
+            return "";
+        }
+        final ByteArrayOutputStream start = new ByteArrayOutputStream();
+        try (InputStream in = body) {
+            final byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                start.write(buffer, 0, Math.max(0, Math.min(read, MAX_ERROR_LENGTH - start.size())));
+            }
+        }
+        return new String(start.toByteArray(), StandardCharsets.UTF_8).trim();
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2015 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.plugin.sender;
+
+import com.izettle.metrics.influxdb.InfluxDbSender;
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+
+/**
+ * Aligns the timestamp of every point to the start of the reporting interval the report was scheduled for.
+ * <p>
+ * Used together with staggered reporting, so points written by different cluster nodes at different
+ * offsets inside the interval still end up with the same timestamp. The offset of this node is subtracted before the
+ * timestamp is rounded to the nearest interval start, so a report which runs a little late or early, e.g. because
+ * of scheduling jitter or wall clock drift, still gets the timestamp of its own interval and never the one of the
+ * next or previous report.
+ */
+public class IntervalAlignedSender extends ForwardingInfluxDbSender {
+
+    private final long intervalMillis;
+    private final long offsetMillis;
+
+    public IntervalAlignedSender(final InfluxDbSender delegate, final long intervalMillis, final long offsetMillis) {
+        super(delegate);
+        this.intervalMillis = intervalMillis;
+        this.offsetMillis = offsetMillis;
+    }
+
+    @Override
+    public void appendPoints(final InfluxDbPoint point) {
+        final long timestamp = point.getTime();
+        final long aligned = align(timestamp);
+        if (aligned == timestamp) {
+            delegate.appendPoints(point);
+            return;
+        }
+        delegate.appendPoints(new InfluxDbPoint(point.getMeasurement(), point.getTags(), aligned, point.getFields()));
+    }
+
+    private long align(final long timestamp) {
+        final long scheduled = timestamp - offsetMillis + intervalMillis / 2;
+        return scheduled - (scheduled % intervalMillis);
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2015 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.plugin.sender;
+
+import com.hivemq.spi.annotations.NotNull;
+import com.hivemq.spi.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A lock-free single producer / single consumer ring buffer of byte records in off-heap memory.
+ * <p>
+ * Every record is stored as its length followed by its bytes, aligned to 4 bytes. A record never wraps around the
+ * end of the buffer, the remaining space is skipped with a padding marker instead. The producer publishes a record
+ * by advancing the tail, the consumer releases it by advancing the head. Both positions only grow, the index in
+ * the buffer is the position modulo the capacity.
+ * <p>
+ * If the buffer is full, the {@link OverflowPolicy} decides if the new record is dropped or the oldest records are
+ * overwritten. For overwriting the producer moves the head with a CAS. The consumer copies a record before it
+ * releases it with a CAS, so a record which was overwritten while it was copied is detected and skipped. The consumer
+ * can also keep a record in the buffer until it was sent, see {@link #peek()} and {@link #commit()}.
+ */
+public class LineProtocolRingBuffer {
+
+    private static final int HEADER_SIZE = 4;
+    private static final int PADDING = -1;
+
+    private final ByteBuffer buffer;
+    private final ByteBuffer producerView;
+    private final ByteBuffer consumerView;
+    private final int capacity;
+    private final OverflowPolicy policy;
+
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong records = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong overwritten = new AtomicLong();
+
+    private long peekedPosition = -1;
+    private int peekedSize;
+
+    public LineProtocolRingBuffer(final int capacity, @NotNull final OverflowPolicy policy) {
+        if (capacity < HEADER_SIZE * 2) {
+            throw new IllegalArgumentException("Capacity must be at least " + HEADER_SIZE * 2 + " bytes, was " + capacity);
+        }
+        this.capacity = capacity - (capacity % HEADER_SIZE);
+        this.policy = policy;
+        this.buffer = ByteBuffer.allocateDirect(this.capacity);
+        this.producerView = buffer.duplicate();
+        this.consumerView = buffer.duplicate();
+    }
+
+    /**
+     * Appends a record, must only be called by the producer.
+     *
+     * @return <code>true</code> if the record was written, <code>false</code> if it was dropped
+     */
+    public boolean offer(@NotNull final byte[] data) {
+        final int size = align(HEADER_SIZE + data.length);
+        if (size > capacity) {
+            dropped.incrementAndGet();
+            return false;
+        }
+
+        long position = tail.get();
+        int index = index(position);
+        int padding = capacity - index < size ? capacity - index : 0;
+
+        while (position + padding + size - head.get() > capacity) {
+            final long oldest = head.get();
+            if (oldest == position) {
+                //empty, but the record does not fit before the end: publish the padding and start at the boundary
+                buffer.putInt(index, PADDING);
+                tail.lazySet(position + padding);
+                head.compareAndSet(oldest, position + padding);
+                position += padding;
+                index = 0;
+                padding = 0;
+                continue;
+            }
+            if (policy == OverflowPolicy.DROP) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            final int length = buffer.getInt(index(oldest));
+            if (head.compareAndSet(oldest, oldest + recordSize(oldest, length)) && length != PADDING) {
+                records.decrementAndGet();
+                overwritten.incrementAndGet();
+            }
+        }
+
+        if (padding > 0) {
+            buffer.putInt(index, PADDING);
+            position += padding;
+            index = 0;
+        }
+        producerView.clear();
+        producerView.position(index + HEADER_SIZE);
+        producerView.put(data);
+        buffer.putInt(index, data.length);
+
+        records.incrementAndGet();
+        tail.lazySet(position + size);
+        return true;
+    }
+
+    /**
+     * Removes the oldest record, must only be called by the consumer.
+     *
+     * @return the oldest record or <code>null</code> if the buffer is empty
+     */
+    @Nullable
+    public byte[] poll() {
+        while (true) {
+            final byte[] data = peek();
+            if (data == null || commit()) {
+                return data;
+            }
+        }
+    }
+
+    /**
+     * Returns the oldest record without removing it, must only be called by the consumer. The record is removed with
+     * {@link #commit()}, until then every peek returns it again unless it is overwritten by the producer.
+     *
+     * @return the oldest record or <code>null</code> if the buffer is empty
+     */
+    @Nullable
+    public byte[] peek() {
+        while (true) {
+            final long position = head.get();
+            if (position == tail.get()) {
+                return null;
+            }
+            final int index = index(position);
+            final int length = buffer.getInt(index);
+            if (length == PADDING) {
+                head.compareAndSet(position, position + recordSize(position, length));
+                continue;
+            }
+            if (length < 0 || length > capacity - index - HEADER_SIZE) {
+                //overwritten by the producer while reading, the head has moved already
+                continue;
+            }
+            final byte[] data = new byte[length];
+            consumerView.clear();
+            consumerView.position(index + HEADER_SIZE);
+            consumerView.get(data);
+            //the CAS is a full fence, so the copy is complete before it is checked that the head did not move
+            if (head.compareAndSet(position, position)) {
+                peekedPosition = position;
+                peekedSize = align(HEADER_SIZE + length);
+                return data;
+            }
+        }
+    }
+
+    /**
+     * Removes the record returned by the last {@link #peek()}, must only be called by the consumer.
+     *
+     * @return <code>false</code> if there was no peeked record or it was overwritten by the producer meanwhile
+     */
+    public boolean commit() {
+        final long position = peekedPosition;
+        if (position < 0) {
+            return false;
+        }
+        peekedPosition = -1;
+        if (head.compareAndSet(position, position + peekedSize)) {
+            records.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the number of bytes currently used, padding included
+     */
+    public long usedBytes() {
+        return tail.get() - head.get();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the size of the largest record which fits into the buffer
+     */
+    public int maxRecordSize() {
+        return capacity - HEADER_SIZE;
+    }
+
+    public long records() {
+        return records.get();
+    }
+
+    public long dropped() {
+        return dropped.get();
+    }
+
+    public long overwritten() {
+        return overwritten.get();
+    }
+
+    private int recordSize(final long position, final int length) {
+        if (length == PADDING) {
+            return capacity - index(position);
+        }
+        return align(HEADER_SIZE + length);
+    }
+
+    private int index(final long position) {
+        return (int) (position % capacity);
+    }
+
+    private static int align(final int size) {
+        return (size + HEADER_SIZE - 1) & ~(HEADER_SIZE - 1);
+    }
+
+    public enum OverflowPolicy {
+        /**
+         * New records are dropped while the buffer is full.
+         */
+        DROP,
+        /**
+         * The oldest records are overwritten by new records.
+         */
+        OVERWRITE
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2015 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.plugin.sender;
+
+import com.hivemq.spi.annotations.NotNull;
+import com.izettle.metrics.influxdb.InfluxDbSender;
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+import com.izettle.metrics.influxdb.data.InfluxDbWriteObject;
+import com.izettle.metrics.influxdb.utils.InfluxDbWriteObjectSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the points of a report and encodes them to line protocol, like the package private base sender of
+ * metrics-influxdb. Subclasses decide what happens with the encoded report.
+ */
+public abstract class LineProtocolSender implements InfluxDbSender {
+
+    private final InfluxDbWriteObject writeObject;
+    private final InfluxDbWriteObjectSerializer serializer;
+
+    protected LineProtocolSender(@NotNull final String database, @NotNull final TimeUnit precision,
+                                 @NotNull final String prefix) {
+        writeObject = new InfluxDbWriteObject(database, precision);
+        serializer = new InfluxDbWriteObjectSerializer(prefix);
+    }
+
+    @Override
+    public void flush() {
+        writeObject.setPoints(new HashSet<InfluxDbPoint>());
+    }
+
+    @Override
+    public boolean hasSeriesData() {
+        return writeObject.getPoints() != null && !writeObject.getPoints().isEmpty();
+    }
+
+    @Override
+    public void appendPoints(final InfluxDbPoint point) {
+        if (point != null) {
+            writeObject.getPoints().add(point);
+        }
+    }
+
+    @Override
+    public int writeData() throws Exception {
+        return writeData(serializer.getLineProtocolString(writeObject).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param line the points of the report in line protocol
+     */
+    protected abstract int writeData(@NotNull byte[] line) throws Exception;
+
+    @Override
+    public void setTags(final Map<String, String> tags) {
+        if (tags != null) {
+            writeObject.setTags(tags);
+        }
+    }
+
+    @Override
+    public Map<String, String> getTags() {
+        return writeObject.getTags();
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2015 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.plugin.sender;
+
+import com.hivemq.spi.annotations.NotNull;
+
+/**
+ * Writes already encoded InfluxDB line protocol to its destination.
+ */
+public interface LineProtocolTransport {
+
+    /**
+     * @param lines line protocol, one point per line
+     * @return the response code of the destination, if it has one
+     * @throws Exception if the lines could not be written
+     */
+    int write(@NotNull byte[] lines) throws Exception;
+
+    /**
+     * Releases all connections and resources of the transport.
+     */
+    void close();
+}
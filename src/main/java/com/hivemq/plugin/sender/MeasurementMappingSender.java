@@ -0,0 +1,69 @@
+/*
+ * Copyright 2015 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.plugin.sender;
+
+import com.hivemq.plugin.mapping.MetricMapping;
+import com.hivemq.plugin.mapping.MetricNameMapper;
+import com.hivemq.spi.annotations.NotNull;
+import com.hivemq.spi.annotations.Nullable;
+import com.izettle.metrics.influxdb.InfluxDbSender;
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Replaces the measurement of every point with the measurement and tags of its {@link MetricNameMapper} mapping.
+ * <p>
+ * The mapper can be replaced while reporting, e.g. when the templates were changed, without setting up the sender
+ * again. Without a mapper the points are passed through unchanged.
+ */
+public class MeasurementMappingSender extends ForwardingInfluxDbSender {
+
+    private volatile MetricNameMapper mapper;
+
+    public MeasurementMappingSender(@NotNull final InfluxDbSender delegate, @Nullable final MetricNameMapper mapper) {
+        super(delegate);
+        this.mapper = mapper;
+    }
+
+    public void setMapper(@Nullable final MetricNameMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    @Override
+    public void appendPoints(final InfluxDbPoint point) {
+        final MetricNameMapper currentMapper = mapper;
+        if (currentMapper == null) {
+            delegate.appendPoints(point);
+            return;
+        }
+        final MetricMapping mapping = currentMapper.map(point.getMeasurement());
+        if (mapping.getTags().isEmpty() && mapping.getMeasurement().equals(point.getMeasurement())) {
+            delegate.appendPoints(point);
+            return;
+        }
+
+        final Map<String, String> tags;
+        if (point.getTags() == null || point.getTags().isEmpty()) {
+            tags = mapping.getTags();
+        } else {
+            tags = new HashMap<>(mapping.getTags());
+            tags.putAll(point.getTags());
+        }
+        delegate.appendPoints(new InfluxDbPoint(mapping.getMeasurement(), tags, point.getTime(), point.getFields()));
+    }
+}
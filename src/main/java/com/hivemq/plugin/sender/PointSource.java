@@ -0,0 +1,34 @@
+/*
+ * Copyright 2015 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.plugin.sender;
+
+import com.hivemq.spi.annotations.NotNull;
+import com.izettle.metrics.influxdb.InfluxDbSender;
+
+/**
+ * A source of points which are not part of the {@link com.codahale.metrics.MetricRegistry} but are written
+ * together with the registry metrics of every report.
+ */
+public interface PointSource {
+
+    /**
+     * Appends the points of the current report to the sender.
+     *
+     * @param sender    the sender to append the points to
+     * @param timestamp the timestamp of the report in milliseconds
+     */
+    void appendPoints(@NotNull InfluxDbSender sender, long timestamp);
+}
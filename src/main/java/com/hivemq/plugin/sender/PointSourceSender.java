@@ -0,0 +1,54 @@
+/*
+ * Copyright 2015 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.plugin.sender;
+
+import com.google.common.collect.ImmutableList;
+import com.izettle.metrics.influxdb.InfluxDbSender;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * Appends the points of additional {@link PointSource}s right before the registry points are written.
+ * <p>
+ * The points are appended to this sender and not to the delegate, so decorators further down the chain
+ * (e.g. the {@link IntervalAlignedSender}) apply to them as well.
+ */
+public class PointSourceSender extends ForwardingInfluxDbSender {
+
+    private static final Logger log = LoggerFactory.getLogger(PointSourceSender.class);
+
+    private final List<PointSource> sources;
+
+    public PointSourceSender(final InfluxDbSender delegate, final List<PointSource> sources) {
+        super(delegate);
+        this.sources = ImmutableList.copyOf(sources);
+    }
+
+    @Override
+    public int writeData() throws Exception {
+        final long timestamp = System.currentTimeMillis();
+        for (PointSource source : sources) {
+            try {
+                source.appendPoints(this, timestamp);
+            } catch (Exception ex) {
+                log.debug("Not able to collect InfluxDB points from {}: ", source.getClass().getSimpleName(), ex);
+            }
+        }
+        return super.writeData();
+    }
+}
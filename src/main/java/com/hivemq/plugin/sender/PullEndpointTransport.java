@@ -0,0 +1,274 @@
+/*
+ * Copyright 2015 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.plugin.sender;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.hivemq.spi.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves the most recent report over HTTP instead of pushing it, e.g. for a local Telegraf to scrape.
+ * <p>
+ * A single NIO thread answers every request with the last written report. The complete HTTP response is encoded
+ * once per report into a direct buffer, so a scrape only writes a duplicate of that buffer to the socket.
+ * <p>
+ * A connection must be answered within {@link #CONNECTION_TIMEOUT_MILLIS}, otherwise it is closed. If accepting a
+ * connection fails, e.g. because the process ran out of file descriptors, accepting is paused for a second.
+ * <p>
+ * {@link #close()} waits until the NIO thread closed the server socket, so a new endpoint can bind the port right away.
+ */
+public class PullEndpointTransport implements LineProtocolTransport, Runnable {
+
+    private static final Logger log = LoggerFactory.getLogger(PullEndpointTransport.class);
+    private static final int REQUEST_BUFFER_SIZE = 1024;
+    private static final byte[] REQUEST_END = {'\r', '\n', '\r', '\n'};
+    private static final long CONNECTION_TIMEOUT_MILLIS = 10000;
+    private static final long ACCEPT_PAUSE_MILLIS = 1000;
+    private static final long SELECT_TIMEOUT_MILLIS = 1000;
+    private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final SelectionKey serverKey;
+    private final Thread thread;
+    private final long connectionTimeoutMillis;
+    private volatile ByteBuffer response = response(new byte[0]);
+    private volatile boolean running = true;
+    private long acceptPausedUntilNanos;
+    private boolean acceptPaused;
+
+    public PullEndpointTransport(@NotNull final String bindAddress, final int port) throws IOException {
+        this(bindAddress, port, CONNECTION_TIMEOUT_MILLIS);
+    }
+
+    @VisibleForTesting
+    PullEndpointTransport(@NotNull final String bindAddress, final int port, final long connectionTimeoutMillis) throws IOException {
+        this.connectionTimeoutMillis = connectionTimeoutMillis;
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.configureBlocking(false);
+            serverChannel.bind(new InetSocketAddress(bindAddress, port));
+            serverKey = serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            serverChannel.close();
+            selector.close();
+            throw e;
+        }
+        thread = new Thread(this, "influxdb-pull-endpoint");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public int write(@NotNull final byte[] lines) throws Exception {
+        response = response(lines);
+        return 200;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        if (Thread.currentThread() == thread) {
+            return;
+        }
+        try {
+            thread.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            log.warn("InfluxDB pull endpoint did not stop within {} ms", CLOSE_TIMEOUT_MILLIS);
+        }
+    }
+
+    @VisibleForTesting
+    int port() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select(SELECT_TIMEOUT_MILLIS);
+                final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    final SelectionKey key = keys.next();
+                    keys.remove();
+                    if (key == serverKey) {
+                        accept();
+                        continue;
+                    }
+                    try {
+                        handle(key);
+                    } catch (IOException e) {
+                        log.debug("InfluxDB pull request failed: {}", e.getMessage());
+                        key.channel().close();
+                    }
+                }
+                final long now = System.nanoTime();
+                resumeAccepting(now);
+                closeExpiredConnections(now);
+            }
+        } catch (IOException e) {
+            log.error("InfluxDB pull endpoint stopped: {}", e.getMessage());
+            log.debug("Original Exception: ", e);
+        } finally {
+            closeQuietly();
+        }
+    }
+
+    private void accept() {
+        if (!serverKey.isValid() || !serverKey.isAcceptable()) {
+            return;
+        }
+        final SocketChannel channel;
+        try {
+            channel = serverChannel.accept();
+        } catch (IOException e) {
+            //the server channel is still usable, e.g. after running out of file descriptors
+            log.error("InfluxDB pull endpoint not able to accept a connection, pausing for {} ms: {}", ACCEPT_PAUSE_MILLIS, e.getMessage());
+            log.debug("Original Exception: ", e);
+            serverKey.interestOps(0);
+            acceptPaused = true;
+            acceptPausedUntilNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ACCEPT_PAUSE_MILLIS);
+            return;
+        }
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ, new Connection(ByteBuffer.allocate(REQUEST_BUFFER_SIZE),
+                    System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(connectionTimeoutMillis)));
+        } catch (IOException e) {
+            log.debug("InfluxDB pull request failed: {}", e.getMessage());
+            closeQuietly(channel);
+        }
+    }
+
+    private void resumeAccepting(final long now) {
+        if (acceptPaused && now - acceptPausedUntilNanos >= 0) {
+            acceptPaused = false;
+            serverKey.interestOps(SelectionKey.OP_ACCEPT);
+        }
+    }
+
+    private void closeExpiredConnections(final long now) {
+        for (SelectionKey key : selector.keys()) {
+            final Object attachment = key.attachment();
+            if (attachment instanceof Connection && now - ((Connection) attachment).deadlineNanos >= 0) {
+                log.debug("InfluxDB pull request not completed within {} ms, closing the connection", connectionTimeoutMillis);
+                closeQuietly(key.channel());
+            }
+        }
+    }
+
+    private void handle(final SelectionKey key) throws IOException {
+        if (!key.isValid()) {
+            return;
+        }
+        final Connection connection = (Connection) key.attachment();
+        if (key.isReadable()) {
+            final SocketChannel channel = (SocketChannel) key.channel();
+            final ByteBuffer request = connection.buffer;
+            if (channel.read(request) < 0) {
+                channel.close();
+                return;
+            }
+            //the request is not interpreted, every request is answered with the last report
+            if (endsWithRequestEnd(request) || !request.hasRemaining()) {
+                connection.buffer = response.duplicate();
+                key.interestOps(SelectionKey.OP_WRITE);
+            }
+        } else if (key.isWritable()) {
+            final SocketChannel channel = (SocketChannel) key.channel();
+            final ByteBuffer pending = connection.buffer;
+            channel.write(pending);
+            if (!pending.hasRemaining()) {
+                channel.close();
+            }
+        }
+    }
+
+    private static boolean endsWithRequestEnd(final ByteBuffer request) {
+        final int position = request.position();
+        if (position < REQUEST_END.length) {
+            return false;
+        }
+        for (int i = 0; i < REQUEST_END.length; i++) {
+            if (request.get(position - REQUEST_END.length + i) != REQUEST_END[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static ByteBuffer response(final byte[] lines) {
+        final byte[] header = ("HTTP/1.1 200 OK\r\n" +
+                "Content-Type: text/plain; charset=utf-8\r\n" +
+                "Content-Length: " + lines.length + "\r\n" +
+                "Connection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(header.length + lines.length);
+        buffer.put(header).put(lines).flip();
+        return buffer.asReadOnlyBuffer();
+    }
+
+    private void closeQuietly() {
+        for (SelectionKey key : selector.keys()) {
+            closeQuietly(key.channel());
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            log.trace("Not able to close selector", e);
+        }
+    }
+
+    private static void closeQuietly(final Channel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.trace("Not able to close channel", e);
+        }
+    }
+
+    private static class Connection {
+
+        private ByteBuffer buffer;
+        private final long deadlineNanos;
+
+        Connection(final ByteBuffer buffer, final long deadlineNanos) {
+            this.buffer = buffer;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+}
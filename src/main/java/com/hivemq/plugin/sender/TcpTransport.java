@@ -0,0 +1,117 @@
+/*
+ * Copyright 2015 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.plugin.sender;
+
+import com.hivemq.spi.annotations.NotNull;
+import com.izettle.metrics.influxdb.InfluxDbTcpSender;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The InfluxDB TCP sender, which can also be used as {@link LineProtocolTransport} for already encoded lines.
+ * <p>
+ * The connection is owned by this transport: it is opened when the transport is created, so an unreachable
+ * InfluxDB fails right away, reopened if InfluxDB closed it or a write fails and closed with {@link #close()}.
+ */
+public class TcpTransport extends InfluxDbTcpSender implements LineProtocolTransport {
+
+    private final InetSocketAddress address;
+    private final int connectTimeout;
+    private Socket socket;
+    private boolean closed;
+
+    public TcpTransport(@NotNull final String host, final int port, final int connectTimeout,
+                        @NotNull final String database, @NotNull final String prefix) throws Exception {
+        super(host, port, connectTimeout, database, TimeUnit.SECONDS, prefix);
+        this.address = new InetSocketAddress(host, port);
+        this.connectTimeout = connectTimeout;
+        this.socket = connect();
+    }
+
+    @Override
+    public int write(@NotNull final byte[] lines) throws Exception {
+        return writeData(lines);
+    }
+
+    @Override
+    protected synchronized int writeData(final byte[] lines) throws Exception {
+        if (closed) {
+            throw new IOException("Connection to InfluxDB " + address + " is closed");
+        }
+        try {
+            if (socket == null || isClosedByPeer(socket)) {
+                closeSocket();
+                socket = connect();
+            }
+            socket.getOutputStream().write(lines);
+        } catch (IOException e) {
+            closeSocket();
+            //the connection may have been closed by InfluxDB since the last write, so reconnect once
+            socket = connect();
+            socket.getOutputStream().write(lines);
+        }
+        return 0;
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        closeSocket();
+    }
+
+    @NotNull
+    private Socket connect() throws IOException {
+        final Socket connected = new Socket();
+        try {
+            connected.connect(address, connectTimeout);
+        } catch (IOException e) {
+            connected.close();
+            throw e;
+        }
+        return connected;
+    }
+
+    /**
+     * InfluxDB never sends on this connection, so a read only returns if the connection was closed. Writing to such
+     * a connection would succeed once and lose the lines.
+     */
+    private static boolean isClosedByPeer(@NotNull final Socket socket) {
+        try {
+            socket.setSoTimeout(1);
+            return socket.getInputStream().read() < 0;
+        } catch (SocketTimeoutException e) {
+            return false;
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    private void closeSocket() {
+        if (socket == null) {
+            return;
+        }
+        try {
+            socket.close();
+        } catch (IOException e) {
+            //nothing left to release
+        }
+        socket = null;
+    }
+}
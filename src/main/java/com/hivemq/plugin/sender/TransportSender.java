@@ -0,0 +1,39 @@
+/*
+ * Copyright 2015 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.plugin.sender;
+
+import com.hivemq.spi.annotations.NotNull;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes the points of a report to line protocol and writes them synchronously with a {@link LineProtocolTransport}.
+ */
+public class TransportSender extends LineProtocolSender {
+
+    private final LineProtocolTransport transport;
+
+    public TransportSender(@NotNull final String database, @NotNull final String prefix,
+                           @NotNull final LineProtocolTransport transport) {
+        super(database, TimeUnit.SECONDS, prefix);
+        this.transport = transport;
+    }
+
+    @Override
+    protected int writeData(final byte[] line) throws Exception {
+        return transport.write(line);
+    }
+}
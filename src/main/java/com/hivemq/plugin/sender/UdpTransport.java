@@ -0,0 +1,42 @@
+/*
+ * Copyright 2015 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.plugin.sender;
+
+import com.hivemq.spi.annotations.NotNull;
+import com.izettle.metrics.influxdb.InfluxDbUdpSender;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The InfluxDB UDP sender, which can also be used as {@link LineProtocolTransport} for already encoded lines.
+ */
+public class UdpTransport extends InfluxDbUdpSender implements LineProtocolTransport {
+
+    public UdpTransport(@NotNull final String host, final int port, final int connectTimeout,
+                        @NotNull final String database, @NotNull final String prefix) throws Exception {
+        super(host, port, connectTimeout, database, TimeUnit.SECONDS, prefix);
+    }
+
+    @Override
+    public int write(@NotNull final byte[] lines) throws Exception {
+        return writeData(lines);
+    }
+
+    @Override
+    public void close() {
+        //UDP is connectionless
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2015 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.plugin.sketch;
+
+import com.hivemq.spi.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Space-Saving algorithm (Metwally et al.) for finding the most frequent keys of a stream with a fixed
+ * number of counters.
+ * <p>
+ * Every tracked key has a count which overestimates its true frequency by at most its error. When all counters
+ * are used, a new key replaces the key with the smallest count and inherits that count as its error. The counters
+ * are kept in a min-heap, so an update is <code>O(log capacity)</code>.
+ * <p>
+ * This class is not thread safe.
+ */
+public class SpaceSaving {
+
+    private final int capacity;
+    private final String[] keys;
+    private final long[] counts;
+    private final long[] errors;
+    private final Map<String, Integer> positions;
+    private int size;
+
+    public SpaceSaving(final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive, was " + capacity);
+        }
+        this.capacity = capacity;
+        this.keys = new String[capacity];
+        this.counts = new long[capacity];
+        this.errors = new long[capacity];
+        this.positions = new HashMap<>(capacity * 2);
+    }
+
+    public void offer(@NotNull final String key, final long increment) {
+        final Integer position = positions.get(key);
+        if (position != null) {
+            counts[position] += increment;
+            siftDown(position);
+            return;
+        }
+        if (size < capacity) {
+            keys[size] = key;
+            counts[size] = increment;
+            errors[size] = 0;
+            positions.put(key, size);
+            siftUp(size);
+            size++;
+            return;
+        }
+        positions.remove(keys[0]);
+        keys[0] = key;
+        errors[0] = counts[0];
+        counts[0] += increment;
+        positions.put(key, 0);
+        siftDown(0);
+    }
+
+    /**
+     * Adds all entries of this sketch to the map, summing up counts and errors of keys already present.
+     */
+    public void addTo(@NotNull final Map<String, Entry> entries) {
+        for (int i = 0; i < size; i++) {
+            final Entry existing = entries.get(keys[i]);
+            if (existing == null) {
+                entries.put(keys[i], new Entry(keys[i], counts[i], errors[i]));
+            } else {
+                entries.put(keys[i], new Entry(keys[i], existing.getCount() + counts[i], existing.getError() + errors[i]));
+            }
+        }
+    }
+
+    public void clear() {
+        positions.clear();
+        for (int i = 0; i < size; i++) {
+            keys[i] = null;
+        }
+        size = 0;
+    }
+
+    /**
+     * @return the <code>k</code> entries with the highest counts, ordered by count descending
+     */
+    @NotNull
+    public static List<Entry> top(@NotNull final Map<String, Entry> entries, final int k) {
+        final List<Entry> sorted = new ArrayList<>(entries.values());
+        Collections.sort(sorted, new Comparator<Entry>() {
+            @Override
+            public int compare(final Entry o1, final Entry o2) {
+                return Long.compare(o2.getCount(), o1.getCount());
+            }
+        });
+        return sorted.size() > k ? sorted.subList(0, k) : sorted;
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            final int parent = (position - 1) >>> 1;
+            if (counts[parent] <= counts[position]) {
+                return;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            final int left = 2 * position + 1;
+            if (left >= size) {
+                return;
+            }
+            final int right = left + 1;
+            final int smallest = right < size && counts[right] < counts[left] ? right : left;
+            if (counts[position] <= counts[smallest]) {
+                return;
+            }
+            swap(position, smallest);
+            position = smallest;
+        }
+    }
+
+    private void swap(final int a, final int b) {
+        final String key = keys[a];
+        final long count = counts[a];
+        final long error = errors[a];
+        keys[a] = keys[b];
+        counts[a] = counts[b];
+        errors[a] = errors[b];
+        keys[b] = key;
+        counts[b] = count;
+        errors[b] = error;
+        positions.put(keys[a], a);
+        positions.put(keys[b], b);
+    }
+
+    public static class Entry {
+
+        private final String key;
+        private final long count;
+        private final long error;
+
+        public Entry(@NotNull final String key, final long count, final long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+
+        @NotNull
+        public String getKey() {
+            return key;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getError() {
+            return error;
+        }
+    }
+}
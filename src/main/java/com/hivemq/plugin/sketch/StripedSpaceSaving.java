@@ -0,0 +1,65 @@
+/*
+ * Copyright 2015 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.plugin.sketch;
+
+import com.hivemq.spi.annotations.NotNull;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A thread safe {@link SpaceSaving} sketch, striped by thread to keep lock contention low.
+ * <p>
+ * HiveMQ handles all messages of a client on the same event loop thread, so the counts of a client usually end
+ * up in a single stripe and the merged result is as accurate as a single sketch.
+ */
+public class StripedSpaceSaving {
+
+    private final SpaceSaving[] stripes;
+    private final int mask;
+
+    public StripedSpaceSaving(final int capacityPerStripe) {
+        final int stripeCount = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1);
+        this.stripes = new SpaceSaving[stripeCount];
+        this.mask = stripeCount - 1;
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new SpaceSaving(capacityPerStripe);
+        }
+    }
+
+    public void offer(@NotNull final String key, final long increment) {
+        final SpaceSaving stripe = stripes[(int) Thread.currentThread().getId() & mask];
+        synchronized (stripe) {
+            stripe.offer(key, increment);
+        }
+    }
+
+    /**
+     * Merges all stripes, returns the <code>k</code> most frequent keys and clears the sketch.
+     */
+    @NotNull
+    public List<SpaceSaving.Entry> drainTop(final int k) {
+        final Map<String, SpaceSaving.Entry> merged = new HashMap<>();
+        for (SpaceSaving stripe : stripes) {
+            synchronized (stripe) {
+                stripe.addTo(merged);
+                stripe.clear();
+            }
+        }
+        return SpaceSaving.top(merged, k);
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2015 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.plugin.topics;
+
+import com.codahale.metrics.Counter;
+import com.hivemq.spi.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bounded trie of topic levels which counts messages and bytes per topic subtree.
+ * <p>
+ * Topics are aggregated by their first <code>maxDepth</code> levels. Once <code>maxNodes</code> nodes exist no
+ * new levels are added and the traffic is counted at the deepest existing node instead, so the memory and the
+ * number of reported series are bounded no matter how many topics the clients use.
+ * <p>
+ * {@link #record(String, long)} is lock-free and does not allocate once the levels of a topic are known: the
+ * topic is walked by index, children are found in an open addressing array by comparing char regions, and the
+ * counters are {@link Counter}s which are striped (<code>LongAdder</code>) internally. Only adding a new level
+ * takes the lock of its parent node.
+ */
+public class TopicTrie {
+
+    private final int maxDepth;
+    private final int maxNodes;
+    private final AtomicInteger nodeCount = new AtomicInteger();
+    private final Node root = new Node("", "#");
+
+    public TopicTrie(final int maxDepth, final int maxNodes) {
+        this.maxDepth = maxDepth;
+        this.maxNodes = maxNodes;
+    }
+
+    public void record(@NotNull final String topic, final long bytes) {
+        Node node = root;
+        int start = 0;
+        int depth = 0;
+        final int length = topic.length();
+
+        while (depth < maxDepth && start <= length) {
+            int end = topic.indexOf('/', start);
+            if (end < 0) {
+                end = length;
+            }
+            final Node child = node.child(topic, start, end);
+            if (child != null) {
+                node = child;
+            } else {
+                final Node added = addChild(node, topic, start, end);
+                if (added == null) {
+                    break;
+                }
+                node = added;
+            }
+            depth++;
+            start = end + 1;
+        }
+
+        node.messages.inc();
+        node.bytes.inc(bytes);
+    }
+
+    /**
+     * Visits all nodes which have seen traffic, the root node (topic path <code>#</code>) included if the trie
+     * overflowed at the first level.
+     */
+    public void visit(@NotNull final Visitor visitor) {
+        visit(root, visitor);
+    }
+
+    private void visit(final Node node, final Visitor visitor) {
+        final long messages = node.messages.getCount();
+        if (messages > 0) {
+            visitor.visit(node.path, messages, node.bytes.getCount());
+        }
+        for (Node child : node.children) {
+            if (child != null) {
+                visit(child, visitor);
+            }
+        }
+    }
+
+    private Node addChild(final Node parent, final String topic, final int start, final int end) {
+        synchronized (parent) {
+            final Node existing = parent.child(topic, start, end);
+            if (existing != null) {
+                return existing;
+            }
+            if (nodeCount.get() >= maxNodes) {
+                return null;
+            }
+            nodeCount.incrementAndGet();
+            final String level = topic.substring(start, end);
+            final String path = parent == root ? level : parent.path + "/" + level;
+            final Node child = new Node(level, path);
+            parent.addChild(child);
+            return child;
+        }
+    }
+
+    private static int hash(final String topic, final int start, final int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + topic.charAt(i);
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    public interface Visitor {
+        void visit(@NotNull String topic, long messages, long bytes);
+    }
+
+    private static class Node {
+
+        private final String level;
+        private final String path;
+        private final Counter messages = new Counter();
+        private final Counter bytes = new Counter();
+
+        /**
+         * Copy on write, only replaced while holding the lock of this node.
+         */
+        private volatile Node[] children = new Node[4];
+        private int childCount;
+
+        Node(final String level, final String path) {
+            this.level = level;
+            this.path = path;
+        }
+
+        Node child(final String topic, final int start, final int end) {
+            final Node[] table = children;
+            final int mask = table.length - 1;
+            final int levelLength = end - start;
+            int slot = hash(topic, start, end) & mask;
+            while (true) {
+                final Node candidate = table[slot];
+                if (candidate == null) {
+                    return null;
+                }
+                if (candidate.level.length() == levelLength && candidate.level.regionMatches(0, topic, start, levelLength)) {
+                    return candidate;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        void addChild(final Node child) {
+            Node[] table = children;
+            if ((childCount + 1) * 2 > table.length) {
+                table = new Node[table.length * 2];
+                for (Node existing : children) {
+                    if (existing != null) {
+                        insert(table, existing);
+                    }
+                }
+            } else {
+                table = table.clone();
+            }
+            insert(table, child);
+            childCount++;
+            children = table;
+        }
+
+        private static void insert(final Node[] table, final Node node) {
+            final int mask = table.length - 1;
+            int slot = hash(node.level, 0, node.level.length()) & mask;
+            while (table[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = node;
+        }
+    }
+}
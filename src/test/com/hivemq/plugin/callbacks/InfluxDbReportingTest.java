@@ -0,0 +1,54 @@
+package com.hivemq.plugin.callbacks;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class InfluxDbReportingTest {
+
+    @Test
+    public void test_stagger_offset_inside_interval() throws Exception {
+
+        for (long interval : new long[]{1, 7, 1000, 60000, 3600000}) {
+            for (int i = 0; i < 1000; i++) {
+                final long offset = InfluxDbReporting.staggerOffset("node-" + i, interval);
+                assertTrue(offset >= 0);
+                assertTrue(offset < interval);
+            }
+        }
+    }
+
+    @Test
+    public void test_stagger_offset_stable() throws Exception {
+
+        assertEquals(InfluxDbReporting.staggerOffset("hivemq1", 60000), InfluxDbReporting.staggerOffset("hivemq1", 60000));
+    }
+
+    @Test
+    public void test_stagger_offsets_spread_over_interval() throws Exception {
+
+        final long interval = 60000;
+        final List<Long> offsets = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            offsets.add(InfluxDbReporting.staggerOffset("hivemq" + i, interval));
+        }
+        Collections.sort(offsets);
+
+        //similar names must not end up only a few milliseconds apart
+        for (int i = 1; i < offsets.size(); i++) {
+            assertTrue(offsets.get(i) - offsets.get(i - 1) > 1000);
+        }
+        //every sixth of the interval gets at least one of the nodes
+        final boolean[] covered = new boolean[6];
+        for (long offset : offsets) {
+            covered[(int) (offset * covered.length / interval)] = true;
+        }
+        for (boolean sixth : covered) {
+            assertTrue(sixth);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.hivemq.plugin.histogram;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LogBucketsTest {
+
+    private final LogBuckets buckets = new LogBuckets(3);
+
+    @Test
+    public void test_value_inside_bucket_bounds() throws Exception {
+
+        for (long value : new long[]{1, 2, 7, 8, 15, 16, 1000, 1023, 1024, 1000000, 123456789}) {
+            final int index = buckets.index(value);
+            assertTrue(value < buckets.upperBound(index));
+            assertTrue(value >= buckets.upperBound(index - 1));
+        }
+    }
+
+    @Test
+    public void test_indices_ordered_by_value() throws Exception {
+
+        int previous = buckets.index(0);
+        for (long value = 1; value < 100000; value += 7) {
+            final int index = buckets.index(value);
+            assertTrue(index >= previous);
+            previous = index;
+        }
+    }
+
+    @Test
+    public void test_relative_error_bounded() throws Exception {
+
+        final int index = buckets.index(1000000);
+        final double lower = buckets.upperBound(index - 1);
+        final double upper = buckets.upperBound(index);
+
+        assertTrue((upper - lower) / lower <= 1.0 / 8);
+    }
+
+    @Test
+    public void test_non_positive_values() throws Exception {
+
+        assertEquals(0, buckets.index(0));
+        assertEquals(0, buckets.index(-5));
+    }
+
+    @Test
+    public void test_max_value_in_range() throws Exception {
+
+        assertTrue(buckets.index(Long.MAX_VALUE) < buckets.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_invalid_precision() throws Exception {
+
+        new LogBuckets(0);
+    }
+}
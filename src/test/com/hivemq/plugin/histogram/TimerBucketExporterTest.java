@@ -0,0 +1,165 @@
+package com.hivemq.plugin.histogram;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.WeightedSnapshot;
+import com.izettle.metrics.influxdb.InfluxDbSender;
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TimerBucketExporterTest {
+
+    @Test
+    public void test_first_report_is_baseline() throws Exception {
+
+        final MetricRegistry registry = new MetricRegistry();
+        final Timer timer = registry.timer("latency");
+        for (int i = 0; i < 100; i++) {
+            timer.update(5, TimeUnit.MILLISECONDS);
+        }
+        final TimerBucketExporter exporter = new TimerBucketExporter(registry, 3);
+
+        final RecordingSender first = new RecordingSender();
+        exporter.appendPoints(first, 1);
+        assertTrue(first.points.isEmpty());
+
+        timer.update(5, TimeUnit.MILLISECONDS);
+        timer.update(5, TimeUnit.MILLISECONDS);
+
+        final RecordingSender second = new RecordingSender();
+        exporter.appendPoints(second, 2);
+        assertEquals(2, second.totalCount());
+        assertEquals("latency.buckets", second.points.get(0).getMeasurement());
+    }
+
+    @Test
+    public void test_timer_registered_after_baseline_starts_at_zero() throws Exception {
+
+        final MetricRegistry registry = new MetricRegistry();
+        final TimerBucketExporter exporter = new TimerBucketExporter(registry, 3);
+        exporter.appendPoints(new RecordingSender(), 1);
+
+        final Timer timer = registry.timer("latency");
+        timer.update(1, TimeUnit.MILLISECONDS);
+        timer.update(100, TimeUnit.MILLISECONDS);
+        timer.update(100, TimeUnit.MILLISECONDS);
+
+        final RecordingSender sender = new RecordingSender();
+        exporter.appendPoints(sender, 2);
+        assertEquals(3, sender.totalCount());
+        assertEquals(2, sender.points.size());
+    }
+
+    @Test
+    public void test_counts_weighted_like_snapshot() throws Exception {
+
+        //the recent 100 ms samples weigh three times as much as the old 1 ms sample
+        final Snapshot snapshot = new WeightedSnapshot(Arrays.asList(
+                new WeightedSnapshot.WeightedSample(TimeUnit.MILLISECONDS.toNanos(1), 1.0),
+                new WeightedSnapshot.WeightedSample(TimeUnit.MILLISECONDS.toNanos(100), 1.5),
+                new WeightedSnapshot.WeightedSample(TimeUnit.MILLISECONDS.toNanos(100), 1.5)));
+        final MetricRegistry registry = new MetricRegistry();
+        final Timer timer = registry.register("latency", new Timer(new FixedReservoir(snapshot)));
+        final TimerBucketExporter exporter = new TimerBucketExporter(registry, 3);
+        exporter.appendPoints(new RecordingSender(), 1);
+
+        for (int i = 0; i < 40; i++) {
+            timer.update(100, TimeUnit.MILLISECONDS);
+        }
+
+        final RecordingSender sender = new RecordingSender();
+        exporter.appendPoints(sender, 2);
+        assertEquals(2, sender.points.size());
+        assertEquals(10L, sender.points.get(0).getFields().get("count"));
+        assertEquals(30L, sender.points.get(1).getFields().get("count"));
+    }
+
+    @Test
+    public void test_idle_timer_skipped() throws Exception {
+
+        final MetricRegistry registry = new MetricRegistry();
+        registry.timer("latency").update(1, TimeUnit.MILLISECONDS);
+        final TimerBucketExporter exporter = new TimerBucketExporter(registry, 3);
+        exporter.appendPoints(new RecordingSender(), 1);
+
+        final RecordingSender sender = new RecordingSender();
+        exporter.appendPoints(sender, 2);
+        assertTrue(sender.points.isEmpty());
+    }
+
+    private static class FixedReservoir implements Reservoir {
+
+        private final Snapshot snapshot;
+
+        private FixedReservoir(final Snapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public int size() {
+            return snapshot.size();
+        }
+
+        @Override
+        public void update(final long value) {
+        }
+
+        @Override
+        public Snapshot getSnapshot() {
+            return snapshot;
+        }
+    }
+
+    private static class RecordingSender implements InfluxDbSender {
+
+        private final List<InfluxDbPoint> points = new ArrayList<>();
+
+        private long totalCount() {
+            long count = 0;
+            for (InfluxDbPoint point : points) {
+                count += (Long) point.getFields().get("count");
+            }
+            return count;
+        }
+
+        @Override
+        public void flush() {
+            points.clear();
+        }
+
+        @Override
+        public boolean hasSeriesData() {
+            return !points.isEmpty();
+        }
+
+        @Override
+        public void appendPoints(final InfluxDbPoint point) {
+            points.add(point);
+        }
+
+        @Override
+        public int writeData() throws Exception {
+            return 0;
+        }
+
+        @Override
+        public void setTags(final Map<String, String> tags) {
+        }
+
+        @Override
+        public Map<String, String> getTags() {
+            return Collections.emptyMap();
+        }
+    }
+}
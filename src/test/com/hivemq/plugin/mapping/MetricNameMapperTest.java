@@ -0,0 +1,71 @@
+package com.hivemq.plugin.mapping;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MetricNameMapperTest {
+
+    @Test
+    public void test_template_with_filter() throws Exception {
+
+        final MetricNameMapper mapper = new MetricNameMapper(Lists.newArrayList(
+                MetricTemplate.parse("com.hivemq.messages.* measurement.measurement.measurement.direction.measurement*")));
+
+        final MetricMapping mapping = mapper.map("com.hivemq.messages.incoming.publish.count");
+
+        assertEquals("com.hivemq.messages.publish.count", mapping.getMeasurement());
+        assertEquals(1, mapping.getTags().size());
+        assertEquals("incoming", mapping.getTags().get("direction"));
+    }
+
+    @Test
+    public void test_no_template_matches() throws Exception {
+
+        final MetricNameMapper mapper = new MetricNameMapper(Lists.newArrayList(
+                MetricTemplate.parse("com.hivemq.messages.* measurement.measurement.measurement.direction.measurement*")));
+
+        final MetricMapping mapping = mapper.map("com.hivemq.networking.connections.current");
+
+        assertEquals("com.hivemq.networking.connections.current", mapping.getMeasurement());
+        assertTrue(mapping.getTags().isEmpty());
+    }
+
+    @Test
+    public void test_first_matching_template_wins() throws Exception {
+
+        final MetricNameMapper mapper = new MetricNameMapper(Lists.newArrayList(
+                MetricTemplate.parse("com.hivemq.* .measurement.type"),
+                MetricTemplate.parse("measurement*")));
+
+        final MetricMapping mapping = mapper.map("com.hivemq.cache.hits");
+
+        assertEquals("hivemq.hits", mapping.getMeasurement());
+        assertEquals("cache", mapping.getTags().get("type"));
+    }
+
+    @Test
+    public void test_segments_after_template_added_to_measurement() throws Exception {
+
+        final MetricMapping mapping = MetricTemplate.parse("measurement.host").apply(new String[]{"cpu", "node1", "load", "m1"});
+
+        assertNotNull(mapping);
+        assertEquals("cpu.load.m1", mapping.getMeasurement());
+        assertEquals("node1", mapping.getTags().get("host"));
+    }
+
+    @Test
+    public void test_mapping_cached() throws Exception {
+
+        final MetricNameMapper mapper = new MetricNameMapper(Lists.newArrayList(MetricTemplate.parse(".measurement*")));
+
+        assertSame(mapper.map("a.b.c"), mapper.map("a.b.c"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_template_without_measurement() throws Exception {
+
+        MetricTemplate.parse("a.* host.region");
+    }
+}
@@ -0,0 +1,88 @@
+package com.hivemq.plugin.sender;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.hivemq.plugin.sender.LineProtocolRingBuffer.OverflowPolicy.DROP;
+import static org.junit.Assert.*;
+
+public class BufferDrainerTest {
+
+    @Test(timeout = 10000)
+    public void test_keeps_reports_while_influxdb_unreachable() throws Exception {
+
+        final LineProtocolRingBuffer buffer = new LineProtocolRingBuffer(1024, DROP);
+        final RecordingTransport transport = new RecordingTransport(3, new IOException("connection refused"));
+        final BufferDrainer drainer = new BufferDrainer(buffer);
+
+        buffer.offer(bytes("a value=1"));
+        buffer.offer(bytes("b value=2"));
+        drainer.start(transport);
+
+        while (transport.written.size() < 2) {
+            Thread.sleep(10);
+        }
+        drainer.stop();
+
+        assertEquals(5, transport.attempts.get());
+        assertEquals("a value=1", transport.written.get(0));
+        assertEquals("b value=2", transport.written.get(1));
+        assertEquals(0, buffer.records());
+    }
+
+    @Test(timeout = 10000)
+    public void test_discards_rejected_reports() throws Exception {
+
+        final LineProtocolRingBuffer buffer = new LineProtocolRingBuffer(1024, DROP);
+        final RecordingTransport transport = new RecordingTransport(1, new HttpStatusException(400, "bad request"));
+        final BufferDrainer drainer = new BufferDrainer(buffer);
+
+        buffer.offer(bytes("a value="));
+        buffer.offer(bytes("b value=2"));
+        drainer.start(transport);
+
+        while (transport.written.size() < 1) {
+            Thread.sleep(10);
+        }
+        drainer.stop();
+
+        assertEquals(2, transport.attempts.get());
+        assertEquals("b value=2", transport.written.get(0));
+        assertEquals(0, buffer.records());
+    }
+
+    private static byte[] bytes(final String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static class RecordingTransport implements LineProtocolTransport {
+
+        private final List<String> written = new CopyOnWriteArrayList<>();
+        private final AtomicInteger attempts = new AtomicInteger();
+        private final int failures;
+        private final Exception failure;
+
+        private RecordingTransport(final int failures, final Exception failure) {
+            this.failures = failures;
+            this.failure = failure;
+        }
+
+        @Override
+        public int write(final byte[] lines) throws Exception {
+            if (attempts.incrementAndGet() <= failures) {
+                throw failure;
+            }
+            written.add(new String(lines, StandardCharsets.UTF_8));
+            return 204;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
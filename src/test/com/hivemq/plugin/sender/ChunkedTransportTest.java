@@ -0,0 +1,143 @@
+package com.hivemq.plugin.sender;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ChunkedTransportTest {
+
+    private static final byte[] LINES = "a value=1\nb value=2\nc value=3\n".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void test_no_split_below_limits() throws Exception {
+
+        final List<byte[]> chunks = ChunkedTransport.split(LINES, 1024, 10);
+
+        assertEquals(1, chunks.size());
+        assertSame(LINES, chunks.get(0));
+    }
+
+    @Test
+    public void test_split_by_points() throws Exception {
+
+        final List<byte[]> chunks = ChunkedTransport.split(LINES, 1024, 2);
+
+        assertEquals(2, chunks.size());
+        assertEquals("a value=1\nb value=2\n", string(chunks.get(0)));
+        assertEquals("c value=3\n", string(chunks.get(1)));
+    }
+
+    @Test
+    public void test_split_by_size_on_line_boundaries() throws Exception {
+
+        final List<byte[]> chunks = ChunkedTransport.split(LINES, 15, 10);
+
+        assertEquals(3, chunks.size());
+        assertEquals("a value=1\n", string(chunks.get(0)));
+        assertEquals("b value=2\n", string(chunks.get(1)));
+        assertEquals("c value=3\n", string(chunks.get(2)));
+    }
+
+    @Test
+    public void test_line_larger_than_chunk() throws Exception {
+
+        final List<byte[]> chunks = ChunkedTransport.split("a value=1\nb value=2".getBytes(StandardCharsets.UTF_8), 4, 10);
+
+        assertEquals(2, chunks.size());
+        assertEquals("a value=1\n", string(chunks.get(0)));
+        assertEquals("b value=2", string(chunks.get(1)));
+    }
+
+    @Test
+    public void test_client_error_not_retried() throws Exception {
+
+        final FailingTransport delegate = new FailingTransport(new HttpStatusException(400, "bad request"));
+        final ChunkedTransport transport = new ChunkedTransport(delegate, 1024, 10, 1, 2);
+
+        try {
+            transport.write(LINES);
+            fail();
+        } catch (HttpStatusException e) {
+            assertEquals(400, e.statusCode());
+        }
+        assertEquals(1, delegate.attempts.get());
+        transport.close();
+    }
+
+    @Test
+    public void test_server_error_retried() throws Exception {
+
+        final FailingTransport delegate = new FailingTransport(new HttpStatusException(503, "unavailable"));
+        final ChunkedTransport transport = new ChunkedTransport(delegate, 1024, 10, 1, 2);
+
+        try {
+            transport.write(LINES);
+            fail();
+        } catch (HttpStatusException e) {
+            assertEquals(503, e.statusCode());
+        }
+        assertEquals(3, delegate.attempts.get());
+        transport.close();
+    }
+
+    @Test
+    public void test_io_error_retried() throws Exception {
+
+        final FailingTransport delegate = new FailingTransport(new IOException("connection refused"));
+        final ChunkedTransport transport = new ChunkedTransport(delegate, 1024, 10, 1, 1);
+
+        try {
+            transport.write(LINES);
+            fail();
+        } catch (IOException e) {
+            assertEquals("connection refused", e.getMessage());
+        }
+        assertEquals(2, delegate.attempts.get());
+        transport.close();
+    }
+
+    @Test
+    public void test_rejected_chunks_keep_status_code() throws Exception {
+
+        final FailingTransport delegate = new FailingTransport(new HttpStatusException(413, "too large"));
+        final ChunkedTransport transport = new ChunkedTransport(delegate, 1024, 1, 2, 2);
+
+        try {
+            transport.write(LINES);
+            fail();
+        } catch (HttpStatusException e) {
+            assertEquals(413, e.statusCode());
+        }
+        assertEquals(3, delegate.attempts.get());
+        transport.close();
+    }
+
+    private static String string(final byte[] value) {
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    private static class FailingTransport implements LineProtocolTransport {
+
+        private final AtomicInteger attempts = new AtomicInteger();
+        private final Exception failure;
+
+        private FailingTransport(final Exception failure) {
+            this.failure = failure;
+        }
+
+        @Override
+        public int write(final byte[] lines) throws Exception {
+            attempts.incrementAndGet();
+            throw failure;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.hivemq.plugin.sender;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DeferredTransportTest {
+
+    @Test(expected = IOException.class)
+    public void test_write_before_connect() throws Exception {
+
+        new DeferredTransport().write(bytes("a value=1 1\n"));
+    }
+
+    @Test
+    public void test_write_after_connect() throws Exception {
+
+        final DeferredTransport transport = new DeferredTransport();
+        final RecordingTransport connected = new RecordingTransport();
+
+        assertTrue(transport.connect(connected));
+        transport.write(bytes("a value=1 1\n"));
+
+        assertEquals(1, connected.writes.size());
+        assertTrue(transport.timeToFirstWriteMillis() >= 0);
+    }
+
+    @Test
+    public void test_write_after_close_rejected() throws Exception {
+
+        final DeferredTransport transport = new DeferredTransport();
+        final RecordingTransport connected = new RecordingTransport();
+        transport.connect(connected);
+        transport.close();
+
+        try {
+            transport.write(bytes("a value=1 1\n"));
+            fail("Write after close must fail");
+        } catch (IOException e) {
+            //expected
+        }
+        assertTrue(connected.writes.isEmpty());
+        assertTrue(connected.closed);
+    }
+
+    @Test
+    public void test_connect_after_close_closes_transport() throws Exception {
+
+        final DeferredTransport transport = new DeferredTransport();
+        final RecordingTransport connected = new RecordingTransport();
+        transport.close();
+
+        assertFalse(transport.connect(connected));
+        assertTrue(connected.closed);
+    }
+
+    private static byte[] bytes(final String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static class RecordingTransport implements LineProtocolTransport {
+
+        private final List<byte[]> writes = new ArrayList<>();
+        private boolean closed;
+
+        @Override
+        public int write(final byte[] lines) throws Exception {
+            writes.add(lines);
+            return 204;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.hivemq.plugin.sender;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+public class FileTransportTest {
+
+    private static final String HEADER = "# DML\n# CONTEXT-DATABASE: hivemq\n";
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    @Test
+    public void test_write_and_close() throws Exception {
+
+        final File directory = tmpFolder.newFolder();
+        final FileTransport transport = new FileTransport(directory, "hivemq", 1024 * 1024, 0, false);
+
+        transport.write(bytes("a value=1 1\n"));
+        transport.write(bytes("b value=2 2\n"));
+        transport.close();
+
+        final List<File> segments = segments(directory, ".lp");
+        assertEquals(1, segments.size());
+        assertEquals(HEADER + "a value=1 1\nb value=2 2\n", read(segments.get(0)));
+    }
+
+    @Test
+    public void test_rotation_by_size() throws Exception {
+
+        final File directory = tmpFolder.newFolder();
+        final String line = "measurement value=1 1\n";
+        final int segmentSize = HEADER.length() + 2 * line.length();
+        final FileTransport transport = new FileTransport(directory, "hivemq", segmentSize, 0, false);
+
+        for (int i = 0; i < 5; i++) {
+            transport.write(bytes(line));
+        }
+        transport.close();
+
+        final List<File> segments = segments(directory, ".lp");
+        assertEquals(3, segments.size());
+        assertEquals(HEADER + line + line, read(segments.get(0)));
+        assertEquals(HEADER + line + line, read(segments.get(1)));
+        assertEquals(HEADER + line, read(segments.get(2)));
+    }
+
+    @Test
+    public void test_rotation_by_age() throws Exception {
+
+        final File directory = tmpFolder.newFolder();
+        final FileTransport transport = new FileTransport(directory, "hivemq", 1024 * 1024, 5, false);
+
+        transport.write(bytes("a value=1 1\n"));
+        Thread.sleep(20);
+        transport.write(bytes("b value=2 2\n"));
+        transport.close();
+
+        final List<File> segments = segments(directory, ".lp");
+        assertEquals(2, segments.size());
+        assertEquals(HEADER + "a value=1 1\n", read(segments.get(0)));
+        assertEquals(HEADER + "b value=2 2\n", read(segments.get(1)));
+    }
+
+    @Test
+    public void test_write_spanning_map_windows() throws Exception {
+
+        final File directory = tmpFolder.newFolder();
+        final byte[] lines = new byte[3 * 1024 * 1024];
+        Arrays.fill(lines, (byte) 'x');
+        lines[lines.length - 1] = '\n';
+        final FileTransport transport = new FileTransport(directory, "hivemq", 8 * 1024 * 1024, 0, false);
+
+        transport.write(lines);
+        transport.close();
+
+        final List<File> segments = segments(directory, ".lp");
+        assertEquals(1, segments.size());
+        assertEquals(HEADER.length() + lines.length, segments.get(0).length());
+    }
+
+    @Test
+    public void test_segment_names_never_reused() throws Exception {
+
+        final File directory = tmpFolder.newFolder();
+        for (int i = 0; i < 3; i++) {
+            final FileTransport transport = new FileTransport(directory, "hivemq", 1024 * 1024, 0, false);
+            transport.write(bytes("measurement value=" + i + " 1\n"));
+            transport.close();
+        }
+
+        final List<File> segments = segments(directory, ".lp");
+        assertEquals(3, segments.size());
+        final List<String> contents = new ArrayList<>();
+        for (File segment : segments) {
+            contents.add(read(segment));
+        }
+        assertEquals(new HashSet<>(Arrays.asList(
+                HEADER + "measurement value=0 1\n",
+                HEADER + "measurement value=1 1\n",
+                HEADER + "measurement value=2 1\n")), new HashSet<>(contents));
+    }
+
+    @Test
+    public void test_compressed_segment_names_never_reused() throws Exception {
+
+        final File directory = tmpFolder.newFolder();
+        for (int i = 0; i < 2; i++) {
+            final FileTransport transport = new FileTransport(directory, "hivemq", 1024 * 1024, 0, true);
+            transport.write(bytes("measurement value=" + i + " 1\n"));
+            transport.close();
+            awaitCompressed(directory, i + 1);
+        }
+
+        final List<File> segments = segments(directory, ".lp.gz");
+        assertEquals(2, segments.size());
+        assertNotEquals(segments.get(0).getName(), segments.get(1).getName());
+        assertEquals(HEADER + "measurement value=0 1\n", readCompressed(segments.get(0)));
+        assertEquals(HEADER + "measurement value=1 1\n", readCompressed(segments.get(1)));
+    }
+
+    @Test
+    public void test_recover_truncates_trailing_zeros() throws Exception {
+
+        final File directory = tmpFolder.newFolder();
+        final File segment = new File(directory, "metrics-20150101-000000-0.lp");
+        final byte[] content = new byte[200 * 1024];
+        final byte[] lines = bytes(HEADER + "a value=1 1\n");
+        System.arraycopy(lines, 0, content, 0, lines.length);
+        Files.write(segment.toPath(), content);
+
+        new FileTransport(directory, "hivemq", 1024 * 1024, 0, false).close();
+
+        assertEquals(HEADER + "a value=1 1\n", read(segment));
+    }
+
+    @Test
+    public void test_recover_truncates_incomplete_line() throws Exception {
+
+        final File directory = tmpFolder.newFolder();
+        final File segment = new File(directory, "metrics-20150101-000000-0.lp");
+        Files.write(segment.toPath(), bytes(HEADER + "a value=1 1\nb val"));
+
+        new FileTransport(directory, "hivemq", 1024 * 1024, 0, false).close();
+
+        assertEquals(HEADER + "a value=1 1\n", read(segment));
+    }
+
+    @Test
+    public void test_recover_keeps_complete_segment_and_other_files() throws Exception {
+
+        final File directory = tmpFolder.newFolder();
+        final File segment = new File(directory, "metrics-20150101-000000-0.lp");
+        final File other = new File(directory, "notes.txt");
+        Files.write(segment.toPath(), bytes(HEADER + "a value=1 1\n"));
+        Files.write(other.toPath(), bytes("no line end"));
+
+        new FileTransport(directory, "hivemq", 1024 * 1024, 0, false).close();
+
+        assertEquals(HEADER + "a value=1 1\n", read(segment));
+        assertEquals("no line end", read(other));
+    }
+
+    @Test
+    public void test_recover_without_complete_line() throws Exception {
+
+        final File directory = tmpFolder.newFolder();
+        final File segment = new File(directory, "metrics-20150101-000000-0.lp");
+        Files.write(segment.toPath(), new byte[1024]);
+
+        new FileTransport(directory, "hivemq", 1024 * 1024, 0, false).close();
+
+        assertEquals(0, segment.length());
+    }
+
+    @Test
+    public void test_recover_compresses_recovered_segment() throws Exception {
+
+        final File directory = tmpFolder.newFolder();
+        final File segment = new File(directory, "metrics-20150101-000000-0.lp");
+        Files.write(segment.toPath(), bytes(HEADER + "a value=1 1\n\0\0\0\0"));
+
+        new FileTransport(directory, "hivemq", 1024 * 1024, 0, true).close();
+
+        awaitCompressed(directory, 1);
+        assertEquals(HEADER + "a value=1 1\n", readCompressed(segments(directory, ".lp.gz").get(0)));
+    }
+
+    @Test(expected = IOException.class)
+    public void test_write_after_close() throws Exception {
+
+        final File directory = tmpFolder.newFolder();
+        final FileTransport transport = new FileTransport(directory, "hivemq", 1024 * 1024, 0, false);
+        transport.write(bytes("a value=1 1\n"));
+        transport.close();
+
+        try {
+            transport.write(bytes("b value=2 2\n"));
+        } finally {
+            assertEquals(1, segments(directory, ".lp").size());
+        }
+    }
+
+    private static void awaitCompressed(final File directory, final int count) throws Exception {
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (segments(directory, ".lp.gz").size() < count || !segments(directory, ".lp").isEmpty()) {
+            assertTrue("Segments not compressed in time", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * The segments in the order they were written: by name, with the sequence number compared as a number.
+     */
+    private static List<File> segments(final File directory, final String suffix) {
+        final File[] files = directory.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(final File file) {
+                return file.getName().startsWith("metrics-") && file.getName().endsWith(suffix);
+            }
+        });
+        final List<File> segments = new ArrayList<>(Arrays.asList(files));
+        Collections.sort(segments, new Comparator<File>() {
+            @Override
+            public int compare(final File first, final File second) {
+                final String[] firstParts = first.getName().split("[-.]");
+                final String[] secondParts = second.getName().split("[-.]");
+                for (int i = 1; i < 4; i++) {
+                    final int result = Long.compare(Long.parseLong(firstParts[i]), Long.parseLong(secondParts[i]));
+                    if (result != 0) {
+                        return result;
+                    }
+                }
+                return 0;
+            }
+        });
+        return segments;
+    }
+
+    private static byte[] bytes(final String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String read(final File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    private static String readCompressed(final File file) throws IOException {
+        try (InputStream in = new GZIPInputStream(new FileInputStream(file))) {
+            final StringBuilder content = new StringBuilder();
+            final byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                content.append(new String(buffer, 0, read, StandardCharsets.UTF_8));
+            }
+            return content.toString();
+        }
+    }
+}
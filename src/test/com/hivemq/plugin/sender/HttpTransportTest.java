@@ -0,0 +1,177 @@
+package com.hivemq.plugin.sender;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.*;
+
+public class HttpTransportTest {
+
+    private HttpServer server;
+    private final List<Request> requests = new CopyOnWriteArrayList<>();
+    private volatile int status = 204;
+    private volatile String responseBody = "";
+
+    @Before
+    public void before() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                requests.add(new Request(exchange.getRequestMethod(), exchange.getRequestURI().toString(),
+                        exchange.getRequestHeaders().getFirst("Authorization"), read(exchange.getRequestBody()),
+                        exchange.getRemoteAddress().getPort()));
+                final byte[] body = responseBody.getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void after() throws Exception {
+        server.stop(0);
+    }
+
+    @Test
+    public void test_write() throws Exception {
+
+        final HttpTransport transport = transport("user:password");
+
+        assertEquals(204, transport.write("a value=1 1\n".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(1, requests.size());
+        final Request request = requests.get(0);
+        assertEquals("POST", request.method);
+        assertEquals("/write?db=hive+mq&precision=s", request.uri);
+        assertEquals("Basic dXNlcjpwYXNzd29yZA==", request.authorization);
+        assertEquals("a value=1 1\n", request.body);
+    }
+
+    @Test
+    public void test_write_without_auth() throws Exception {
+
+        transport(null).write("a value=1 1\n".getBytes(StandardCharsets.UTF_8));
+
+        assertNull(requests.get(0).authorization);
+    }
+
+    @Test
+    public void test_rejected_write() throws Exception {
+
+        status = 400;
+        responseBody = "{\"error\":\"unable to parse 'a value='\"}";
+
+        try {
+            transport(null).write("a value=\n".getBytes(StandardCharsets.UTF_8));
+            fail("Rejected write must fail");
+        } catch (HttpStatusException e) {
+            assertEquals(400, e.statusCode());
+            assertFalse(e.isServerError());
+            assertFalse(HttpStatusException.isRetryable(e));
+            assertTrue(e.getMessage().contains("unable to parse"));
+        }
+    }
+
+    @Test
+    public void test_server_error() throws Exception {
+
+        status = 503;
+
+        try {
+            transport(null).write("a value=1 1\n".getBytes(StandardCharsets.UTF_8));
+            fail("Failed write must fail");
+        } catch (HttpStatusException e) {
+            assertEquals(503, e.statusCode());
+            assertTrue(HttpStatusException.isRetryable(e));
+        }
+    }
+
+    @Test
+    public void test_connection_reused_after_rejected_write() throws Exception {
+
+        final HttpTransport transport = transport(null);
+        status = 400;
+        responseBody = "{\"error\":\"bad request\"}";
+        try {
+            transport.write("a value=\n".getBytes(StandardCharsets.UTF_8));
+            fail("Rejected write must fail");
+        } catch (HttpStatusException e) {
+            //expected
+        }
+        status = 204;
+        responseBody = "";
+        transport.write("a value=1 1\n".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(2, requests.size());
+        assertEquals(requests.get(0).remotePort, requests.get(1).remotePort);
+    }
+
+    @Test
+    public void test_ping() throws Exception {
+
+        transport(null).ping();
+
+        assertEquals("GET", requests.get(0).method);
+        assertEquals("/ping", requests.get(0).uri);
+    }
+
+    @Test(expected = IOException.class)
+    public void test_ping_unreachable() throws Exception {
+
+        final int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        new HttpTransport("http", "127.0.0.1", port, "hivemq", null, 1000).ping();
+    }
+
+    private HttpTransport transport(final String auth) throws IOException {
+        return new HttpTransport("http", "127.0.0.1", server.getAddress().getPort(), "hive mq", auth, 5000);
+    }
+
+    private static String read(final InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static class Request {
+
+        private final String method;
+        private final String uri;
+        private final String authorization;
+        private final String body;
+        private final int remotePort;
+
+        private Request(final String method, final String uri, final String authorization, final String body,
+                        final int remotePort) {
+            this.method = method;
+            this.uri = uri;
+            this.authorization = authorization;
+            this.body = body;
+            this.remotePort = remotePort;
+        }
+    }
+}
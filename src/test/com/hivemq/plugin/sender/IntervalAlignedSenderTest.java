@@ -0,0 +1,97 @@
+package com.hivemq.plugin.sender;
+
+import com.izettle.metrics.influxdb.InfluxDbSender;
+import com.izettle.metrics.influxdb.data.InfluxDbPoint;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class IntervalAlignedSenderTest {
+
+    @Test
+    public void test_report_on_time() throws Exception {
+
+        assertEquals(5000, alignedTime(1000, 990, 5990));
+        assertEquals(5000, alignedTime(1000, 0, 5000));
+    }
+
+    @Test
+    public void test_report_runs_late() throws Exception {
+
+        //the report of the slot starting at 5000 runs 15 ms after its offset, already inside the next interval
+        assertEquals(5000, alignedTime(1000, 990, 6005));
+        //the report of the next slot still gets the next interval
+        assertEquals(6000, alignedTime(1000, 990, 6992));
+    }
+
+    @Test
+    public void test_report_runs_early() throws Exception {
+
+        //wall clock drift can make a report with offset 0 run before its interval starts
+        assertEquals(6000, alignedTime(1000, 0, 5995));
+        assertEquals(60000, alignedTime(60000, 30000, 89000));
+    }
+
+    @Test
+    public void test_consecutive_late_reports_get_distinct_timestamps() throws Exception {
+
+        final long interval = 1000;
+        final long offset = 995;
+        long previous = -1;
+        for (int slot = 1; slot <= 100; slot++) {
+            final long jitter = (slot * 7) % 40;
+            final long aligned = alignedTime(interval, offset, slot * interval + offset + jitter);
+            assertEquals(slot * interval, aligned);
+            assertTrue(aligned > previous);
+            previous = aligned;
+        }
+    }
+
+    private static long alignedTime(final long interval, final long offset, final long reportTime) {
+        final RecordingSender recording = new RecordingSender();
+        final IntervalAlignedSender sender = new IntervalAlignedSender(recording, interval, offset);
+        sender.appendPoints(new InfluxDbPoint("measurement", Collections.<String, String>emptyMap(), reportTime,
+                Collections.<String, Object>singletonMap("value", 1)));
+        assertEquals(1, recording.points.size());
+        return recording.points.get(0).getTime();
+    }
+
+    private static class RecordingSender implements InfluxDbSender {
+
+        private final List<InfluxDbPoint> points = new ArrayList<>();
+
+        @Override
+        public void flush() {
+            points.clear();
+        }
+
+        @Override
+        public boolean hasSeriesData() {
+            return !points.isEmpty();
+        }
+
+        @Override
+        public void appendPoints(final InfluxDbPoint point) {
+            points.add(point);
+        }
+
+        @Override
+        public int writeData() throws Exception {
+            return 0;
+        }
+
+        @Override
+        public void setTags(final Map<String, String> tags) {
+        }
+
+        @Override
+        public Map<String, String> getTags() {
+            return Collections.emptyMap();
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.hivemq.plugin.sender;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static com.hivemq.plugin.sender.LineProtocolRingBuffer.OverflowPolicy.DROP;
+import static com.hivemq.plugin.sender.LineProtocolRingBuffer.OverflowPolicy.OVERWRITE;
+import static org.junit.Assert.*;
+
+public class LineProtocolRingBufferTest {
+
+    @Test
+    public void test_offer_poll() throws Exception {
+
+        final LineProtocolRingBuffer buffer = new LineProtocolRingBuffer(64, DROP);
+
+        assertTrue(buffer.offer(bytes("a value=1")));
+        assertTrue(buffer.offer(bytes("b value=2")));
+        assertEquals(2, buffer.records());
+
+        assertEquals("a value=1", string(buffer.poll()));
+        assertEquals("b value=2", string(buffer.poll()));
+        assertNull(buffer.poll());
+        assertEquals(0, buffer.usedBytes());
+    }
+
+    @Test
+    public void test_wrap_around() throws Exception {
+
+        final LineProtocolRingBuffer buffer = new LineProtocolRingBuffer(64, DROP);
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(buffer.offer(bytes("measurement value=" + i)));
+            assertEquals("measurement value=" + i, string(buffer.poll()));
+        }
+        assertEquals(0, buffer.dropped());
+    }
+
+    @Test
+    public void test_drop_when_full() throws Exception {
+
+        final LineProtocolRingBuffer buffer = new LineProtocolRingBuffer(32, DROP);
+
+        assertTrue(buffer.offer(bytes("0123456789")));
+        assertTrue(buffer.offer(bytes("0123456789")));
+        assertFalse(buffer.offer(bytes("0123456789")));
+
+        assertEquals(1, buffer.dropped());
+        assertEquals(2, buffer.records());
+    }
+
+    @Test
+    public void test_overwrite_oldest_when_full() throws Exception {
+
+        final LineProtocolRingBuffer buffer = new LineProtocolRingBuffer(32, OVERWRITE);
+
+        assertTrue(buffer.offer(bytes("first-----")));
+        assertTrue(buffer.offer(bytes("second----")));
+        assertTrue(buffer.offer(bytes("third-----")));
+
+        assertEquals(1, buffer.overwritten());
+        assertEquals("second----", string(buffer.poll()));
+        assertEquals("third-----", string(buffer.poll()));
+        assertNull(buffer.poll());
+    }
+
+    @Test
+    public void test_large_record_after_partial_fill_overwrite() throws Exception {
+
+        final LineProtocolRingBuffer buffer = new LineProtocolRingBuffer(64, OVERWRITE);
+
+        assertTrue(buffer.offer(new byte[28]));
+        assertEquals(28, buffer.poll().length);
+        assertTrue(buffer.offer(bytes("012345678901234567890123456789012345")));
+
+        assertEquals(1, buffer.records());
+        assertEquals(0, buffer.overwritten());
+        assertEquals("012345678901234567890123456789012345", string(buffer.poll()));
+        assertNull(buffer.poll());
+        assertEquals(0, buffer.records());
+    }
+
+    @Test
+    public void test_large_record_after_partial_fill_drop() throws Exception {
+
+        final LineProtocolRingBuffer buffer = new LineProtocolRingBuffer(64, DROP);
+
+        assertTrue(buffer.offer(new byte[28]));
+        assertEquals(28, buffer.poll().length);
+        assertTrue(buffer.offer(bytes("012345678901234567890123456789012345")));
+
+        assertEquals(0, buffer.dropped());
+        assertEquals("012345678901234567890123456789012345", string(buffer.poll()));
+        assertNull(buffer.poll());
+    }
+
+    @Test
+    public void test_large_record_overwrites_unread_record() throws Exception {
+
+        final LineProtocolRingBuffer buffer = new LineProtocolRingBuffer(64, OVERWRITE);
+
+        assertTrue(buffer.offer(new byte[28]));
+        assertTrue(buffer.offer(bytes("012345678901234567890123456789012345")));
+
+        assertEquals(1, buffer.records());
+        assertEquals(1, buffer.overwritten());
+        assertEquals("012345678901234567890123456789012345", string(buffer.poll()));
+        assertNull(buffer.poll());
+        assertEquals(0, buffer.records());
+    }
+
+    @Test
+    public void test_peek_keeps_record_until_commit() throws Exception {
+
+        final LineProtocolRingBuffer buffer = new LineProtocolRingBuffer(64, DROP);
+
+        assertTrue(buffer.offer(bytes("a value=1")));
+        assertTrue(buffer.offer(bytes("b value=2")));
+
+        assertEquals("a value=1", string(buffer.peek()));
+        assertEquals("a value=1", string(buffer.peek()));
+        assertEquals(2, buffer.records());
+
+        assertTrue(buffer.commit());
+        assertFalse(buffer.commit());
+        assertEquals(1, buffer.records());
+        assertEquals("b value=2", string(buffer.peek()));
+    }
+
+    @Test
+    public void test_commit_after_overwrite() throws Exception {
+
+        final LineProtocolRingBuffer buffer = new LineProtocolRingBuffer(32, OVERWRITE);
+
+        assertTrue(buffer.offer(bytes("first-----")));
+        assertTrue(buffer.offer(bytes("second----")));
+        assertEquals("first-----", string(buffer.peek()));
+
+        assertTrue(buffer.offer(bytes("third-----")));
+        assertFalse(buffer.commit());
+
+        assertEquals(2, buffer.records());
+        assertEquals("second----", string(buffer.poll()));
+        assertEquals("third-----", string(buffer.poll()));
+    }
+
+    @Test
+    public void test_record_larger_than_buffer() throws Exception {
+
+        final LineProtocolRingBuffer buffer = new LineProtocolRingBuffer(16, OVERWRITE);
+
+        assertFalse(buffer.offer(new byte[64]));
+        assertEquals(1, buffer.dropped());
+    }
+
+    @Test
+    public void test_max_record_size() throws Exception {
+
+        final LineProtocolRingBuffer buffer = new LineProtocolRingBuffer(64, DROP);
+
+        assertFalse(buffer.offer(new byte[buffer.maxRecordSize() + 1]));
+        assertTrue(buffer.offer(new byte[buffer.maxRecordSize()]));
+        assertEquals(buffer.maxRecordSize(), buffer.poll().length);
+    }
+
+    @Test
+    public void test_concurrent_producer_consumer() throws Exception {
+
+        final LineProtocolRingBuffer buffer = new LineProtocolRingBuffer(1024, DROP);
+        final int count = 100000;
+
+        final Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < count; i++) {
+                    while (!buffer.offer(bytes(String.valueOf(i)))) {
+                        Thread.yield();
+                    }
+                }
+            }
+        });
+        producer.start();
+
+        int expected = 0;
+        while (expected < count) {
+            final byte[] record = buffer.poll();
+            if (record != null) {
+                assertEquals(String.valueOf(expected), string(record));
+                expected++;
+            }
+        }
+        producer.join();
+    }
+
+    private static byte[] bytes(final String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(final byte[] value) {
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
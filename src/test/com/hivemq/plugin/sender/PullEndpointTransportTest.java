@@ -0,0 +1,127 @@
+package com.hivemq.plugin.sender;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class PullEndpointTransportTest {
+
+    private static final String REQUEST = "GET /metrics HTTP/1.1\r\nHost: localhost\r\n\r\n";
+
+    private PullEndpointTransport endpoint;
+
+    @After
+    public void after() throws Exception {
+        if (endpoint != null) {
+            endpoint.close();
+        }
+    }
+
+    @Test
+    public void test_response_for_complete_request() throws Exception {
+
+        endpoint = new PullEndpointTransport("127.0.0.1", 0);
+        endpoint.write(bytes("a value=1 1\n"));
+
+        final String response = request(endpoint.port(), REQUEST);
+
+        assertTrue(response.startsWith("HTTP/1.1 200 OK\r\n"));
+        assertTrue(response.contains("Content-Length: 12\r\n"));
+        assertTrue(response.endsWith("\r\n\r\na value=1 1\n"));
+    }
+
+    @Test
+    public void test_empty_response_before_first_write() throws Exception {
+
+        endpoint = new PullEndpointTransport("127.0.0.1", 0);
+
+        final String response = request(endpoint.port(), REQUEST);
+
+        assertTrue(response.contains("Content-Length: 0\r\n"));
+        assertTrue(response.endsWith("\r\n\r\n"));
+    }
+
+    @Test
+    public void test_latest_report_served() throws Exception {
+
+        endpoint = new PullEndpointTransport("127.0.0.1", 0);
+
+        endpoint.write(bytes("a value=1 1\n"));
+        assertTrue(request(endpoint.port(), REQUEST).endsWith("a value=1 1\n"));
+
+        endpoint.write(bytes("b value=2 2\n"));
+        final String response = request(endpoint.port(), REQUEST);
+        assertTrue(response.endsWith("\r\n\r\nb value=2 2\n"));
+        assertFalse(response.contains("a value=1 1"));
+    }
+
+    @Test
+    public void test_request_split_over_packets() throws Exception {
+
+        endpoint = new PullEndpointTransport("127.0.0.1", 0);
+        endpoint.write(bytes("a value=1 1\n"));
+
+        try (Socket socket = new Socket("127.0.0.1", endpoint.port())) {
+            socket.setSoTimeout(5000);
+            socket.getOutputStream().write(bytes("GET /metrics HTTP/1.1\r\n"));
+            socket.getOutputStream().flush();
+            Thread.sleep(50);
+            socket.getOutputStream().write(bytes("Host: localhost\r\n\r\n"));
+            assertTrue(readAll(socket.getInputStream()).endsWith("a value=1 1\n"));
+        }
+    }
+
+    @Test
+    public void test_idle_connection_closed() throws Exception {
+
+        endpoint = new PullEndpointTransport("127.0.0.1", 0, 100);
+
+        try (Socket socket = new Socket("127.0.0.1", endpoint.port())) {
+            socket.setSoTimeout(5000);
+            final long start = System.nanoTime();
+            assertEquals(-1, socket.getInputStream().read());
+            assertTrue(System.nanoTime() - start < 5000000000L);
+        }
+    }
+
+    @Test
+    public void test_port_released_on_close() throws Exception {
+
+        final PullEndpointTransport first = new PullEndpointTransport("127.0.0.1", 0);
+        final int port = first.port();
+        first.close();
+
+        endpoint = new PullEndpointTransport("127.0.0.1", port);
+        endpoint.write(bytes("a value=1 1\n"));
+        assertTrue(request(port, REQUEST).endsWith("a value=1 1\n"));
+    }
+
+    private static String request(final int port, final String request) throws IOException {
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            socket.setSoTimeout(5000);
+            socket.getOutputStream().write(bytes(request));
+            return readAll(socket.getInputStream());
+        }
+    }
+
+    private static String readAll(final InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytes(final String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
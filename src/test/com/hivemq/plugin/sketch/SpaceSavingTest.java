@@ -0,0 +1,79 @@
+package com.hivemq.plugin.sketch;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class SpaceSavingTest {
+
+    @Test
+    public void test_exact_below_capacity() throws Exception {
+
+        final SpaceSaving sketch = new SpaceSaving(10);
+        sketch.offer("a", 3);
+        sketch.offer("b", 1);
+        sketch.offer("a", 2);
+
+        final List<SpaceSaving.Entry> top = top(sketch, 10);
+
+        assertEquals(2, top.size());
+        assertEquals("a", top.get(0).getKey());
+        assertEquals(5, top.get(0).getCount());
+        assertEquals(0, top.get(0).getError());
+        assertEquals("b", top.get(1).getKey());
+    }
+
+    @Test
+    public void test_heavy_hitters_survive_eviction() throws Exception {
+
+        final SpaceSaving sketch = new SpaceSaving(8);
+        for (int i = 0; i < 10000; i++) {
+            sketch.offer("heavy1", 1);
+            sketch.offer("client-" + i, 1);
+            if (i % 2 == 0) {
+                sketch.offer("heavy2", 1);
+            }
+        }
+
+        final List<SpaceSaving.Entry> top = top(sketch, 2);
+
+        assertEquals("heavy1", top.get(0).getKey());
+        assertEquals("heavy2", top.get(1).getKey());
+        assertTrue(top.get(0).getCount() - top.get(0).getError() <= 10000);
+        assertTrue(top.get(0).getCount() >= 10000);
+    }
+
+    @Test
+    public void test_clear() throws Exception {
+
+        final SpaceSaving sketch = new SpaceSaving(2);
+        sketch.offer("a", 1);
+        sketch.clear();
+
+        assertTrue(top(sketch, 2).isEmpty());
+    }
+
+    @Test
+    public void test_striped_drain() throws Exception {
+
+        final StripedSpaceSaving sketch = new StripedSpaceSaving(4);
+        sketch.offer("a", 2);
+        sketch.offer("b", 1);
+
+        final List<SpaceSaving.Entry> top = sketch.drainTop(1);
+
+        assertEquals(1, top.size());
+        assertEquals("a", top.get(0).getKey());
+        assertTrue(sketch.drainTop(1).isEmpty());
+    }
+
+    private static List<SpaceSaving.Entry> top(final SpaceSaving sketch, final int k) {
+        final Map<String, SpaceSaving.Entry> entries = new HashMap<>();
+        sketch.addTo(entries);
+        return SpaceSaving.top(entries, k);
+    }
+}
@@ -0,0 +1,164 @@
+package com.hivemq.plugin.topics;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class TopicTrieTest {
+
+    @Test
+    public void test_record_per_topic() throws Exception {
+
+        final TopicTrie trie = new TopicTrie(3, 100);
+
+        trie.record("sensors/temperature", 10);
+        trie.record("sensors/temperature", 20);
+        trie.record("sensors/humidity", 5);
+
+        final Map<String, long[]> topics = visit(trie);
+        assertEquals(2, topics.size());
+        assertEquals(2, topics.get("sensors/temperature")[0]);
+        assertEquals(30, topics.get("sensors/temperature")[1]);
+        assertEquals(1, topics.get("sensors/humidity")[0]);
+        assertEquals(5, topics.get("sensors/humidity")[1]);
+    }
+
+    @Test
+    public void test_topics_truncated_to_max_depth() throws Exception {
+
+        final TopicTrie trie = new TopicTrie(2, 100);
+
+        trie.record("building/1/floor/2/temperature", 1);
+        trie.record("building/1/floor/3/temperature", 1);
+        trie.record("building/2", 1);
+
+        final Map<String, long[]> topics = visit(trie);
+        assertEquals(2, topics.size());
+        assertEquals(2, topics.get("building/1")[0]);
+        assertEquals(1, topics.get("building/2")[0]);
+    }
+
+    @Test
+    public void test_overflow_counted_at_parent() throws Exception {
+
+        final TopicTrie trie = new TopicTrie(3, 2);
+
+        trie.record("a/b", 1);
+        trie.record("a/c", 1);
+        trie.record("a/b/c", 1);
+
+        final Map<String, long[]> topics = visit(trie);
+        assertEquals(2, topics.size());
+        assertEquals(2, topics.get("a/b")[0]);
+        assertEquals(1, topics.get("a")[0]);
+    }
+
+    @Test
+    public void test_overflow_at_first_level_counted_at_root() throws Exception {
+
+        final TopicTrie trie = new TopicTrie(3, 1);
+
+        trie.record("a", 1);
+        trie.record("b/c", 7);
+
+        final Map<String, long[]> topics = visit(trie);
+        assertEquals(2, topics.size());
+        assertEquals(1, topics.get("a")[0]);
+        assertEquals(1, topics.get("#")[0]);
+        assertEquals(7, topics.get("#")[1]);
+    }
+
+    @Test
+    public void test_empty_levels() throws Exception {
+
+        final TopicTrie trie = new TopicTrie(3, 100);
+
+        trie.record("a/", 1);
+        trie.record("/a", 1);
+        trie.record("a//b", 1);
+
+        final Map<String, long[]> topics = visit(trie);
+        assertEquals(3, topics.size());
+        assertEquals(1, topics.get("a/")[0]);
+        assertEquals(1, topics.get("/a")[0]);
+        assertEquals(1, topics.get("a//b")[0]);
+    }
+
+    @Test
+    public void test_many_children_of_one_level() throws Exception {
+
+        final TopicTrie trie = new TopicTrie(2, 1000);
+
+        for (int i = 0; i < 500; i++) {
+            trie.record("devices/" + i, i);
+        }
+
+        final Map<String, long[]> topics = visit(trie);
+        assertEquals(500, topics.size());
+        for (int i = 0; i < 500; i++) {
+            assertEquals(i, topics.get("devices/" + i)[1]);
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void test_concurrent_record_and_visit() throws Exception {
+
+        final TopicTrie trie = new TopicTrie(3, 200);
+        final int threads = 4;
+        final int messagesPerThread = 50000;
+        final CountDownLatch done = new CountDownLatch(threads);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < messagesPerThread; i++) {
+                            trie.record("devices/" + (i % 300) + "/" + thread, 1);
+                        }
+                    } catch (Throwable e) {
+                        failure.set(e);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+
+        final AtomicBoolean visited = new AtomicBoolean();
+        while (done.getCount() > 0) {
+            visit(trie);
+            visited.set(true);
+        }
+        assertNull(failure.get());
+        assertTrue(visited.get());
+
+        long messages = 0;
+        long bytes = 0;
+        for (long[] counts : visit(trie).values()) {
+            messages += counts[0];
+            bytes += counts[1];
+        }
+        assertEquals(threads * messagesPerThread, messages);
+        assertEquals(threads * messagesPerThread, bytes);
+    }
+
+    private static Map<String, long[]> visit(final TopicTrie trie) {
+        final Map<String, long[]> topics = new TreeMap<>();
+        trie.visit(new TopicTrie.Visitor() {
+            @Override
+            public void visit(final String topic, final long messages, final long bytes) {
+                topics.put(topic, new long[]{messages, bytes});
+            }
+        });
+        return topics;
+    }
+}